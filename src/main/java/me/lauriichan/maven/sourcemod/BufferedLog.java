@@ -0,0 +1,38 @@
+package me.lauriichan.maven.sourcemod;
+
+import org.apache.maven.plugin.logging.Log;
+
+import it.unimi.dsi.fastutil.booleans.BooleanArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+final class BufferedLog {
+
+    private final ObjectArrayList<String> messages = new ObjectArrayList<>();
+    private final BooleanArrayList warnings = new BooleanArrayList();
+
+    public void info(final String message) {
+        add(false, message);
+    }
+
+    public void warn(final String message) {
+        add(true, message);
+    }
+
+    private void add(final boolean warning, final String message) {
+        warnings.add(warning);
+        messages.add(message);
+    }
+
+    public void flushTo(final Log log) {
+        for (int i = 0; i < messages.size(); i++) {
+            if (warnings.getBoolean(i)) {
+                log.warn(messages.get(i));
+            } else {
+                log.info(messages.get(i));
+            }
+        }
+        warnings.clear();
+        messages.clear();
+    }
+
+}
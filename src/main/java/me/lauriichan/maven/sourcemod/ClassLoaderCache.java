@@ -0,0 +1,168 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.aether.SessionData;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+final class ClassLoaderCache {
+
+    private static final class Stamp {
+
+        private final long size, modified;
+        private final String hash;
+
+        private Stamp(final long size, final long modified, final String hash) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+
+    }
+
+    private final ConcurrentHashMap<Path, Stamp> stamps = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<ClassLoader, ConcurrentHashMap<String, URLClassLoader>> loaders = new ConcurrentHashMap<>();
+    private final AtomicInteger hits = new AtomicInteger(), misses = new AtomicInteger();
+    private final Log log;
+    private volatile boolean closed;
+
+    private ClassLoaderCache(final Log log) {
+        this.log = log;
+    }
+
+    public static ClassLoaderCache get(final MavenSession session, final Log log) {
+        if (session == null || session.getRepositorySession() == null) {
+            return null;
+        }
+        SessionData data = session.getRepositorySession().getData();
+        // The class itself is the key so that plugin realms never see each others instances
+        Object key = ClassLoaderCache.class;
+        while (true) {
+            Object cache = data.get(key);
+            if (cache != null) {
+                return (ClassLoaderCache) cache;
+            }
+            ClassLoaderCache created = new ClassLoaderCache(log);
+            if (data.set(key, null, created)) {
+                if (!SessionHooks.onEnd(session, created::close, log)) {
+                    // Without a way to close them at the end, loaders must not outlive the execution
+                    created.closed = true;
+                }
+                return created;
+            }
+        }
+    }
+
+    public ClassLoader get(final List<File> classpath, final ClassLoader parent, final Log log) throws IOException {
+        if (closed) {
+            return null;
+        }
+        // Only jars are shared, the output directories at the front of every module's classpath would prevent any hit
+        ObjectArrayList<File> jars = new ObjectArrayList<>();
+        Fingerprint fingerprint = new Fingerprint();
+        for (File file : classpath) {
+            if (file.isFile()) {
+                jars.add(file);
+                fingerprint.add(file.getAbsolutePath()).add(stamp(file.toPath()));
+            }
+        }
+        if (jars.isEmpty()) {
+            return parent;
+        }
+        String key = fingerprint.add(jars.size()).build();
+        ConcurrentHashMap<String, URLClassLoader> byParent = loaders.computeIfAbsent(parent, ignore -> new ConcurrentHashMap<>());
+        URLClassLoader loader = byParent.get(key);
+        if (loader != null) {
+            log.debug("Reusing class loader of " + jars.size() + " jars (" + hits.incrementAndGet() + " hits, " + misses.get()
+                + " misses in this session)");
+            return loader;
+        }
+        URLClassLoader created = URLClassLoader.newInstance(toUrls(jars), parent);
+        if ((loader = byParent.putIfAbsent(key, created)) != null) {
+            created.close();
+            log.debug("Reusing class loader of " + jars.size() + " jars (" + hits.incrementAndGet() + " hits, " + misses.get()
+                + " misses in this session)");
+            return loader;
+        }
+        log.debug("Created class loader of " + jars.size() + " jars (" + hits.get() + " hits, " + misses.incrementAndGet()
+            + " misses in this session)");
+        return created;
+    }
+
+    public static URL[] toUrls(final List<File> classpath) throws MalformedURLException {
+        URL[] urls = new URL[classpath.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = classpath.get(i).toURI().toURL();
+        }
+        return urls;
+    }
+
+    public String stamp(final Path path) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return "missing";
+        }
+        if (attributes.isDirectory()) {
+            return stampDirectory(path);
+        }
+        long size = attributes.size(), modified = attributes.lastModifiedTime().toMillis();
+        Stamp stamp = stamps.get(path);
+        if (stamp == null || stamp.size != size || stamp.modified != modified) {
+            stamps.put(path, stamp = new Stamp(size, modified, Hashing.hash(path)));
+        }
+        return stamp.hash;
+    }
+
+    public static String stampOf(final Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            return stampDirectory(path);
+        }
+        return Files.isRegularFile(path) ? Hashing.hash(path) : "missing";
+    }
+
+    static String stampDirectory(final Path directory) throws IOException {
+        Fingerprint fingerprint = new Fingerprint();
+        try (Stream<Path> stream = Files.walk(directory)) {
+            Path[] files = stream.filter(Files::isRegularFile).sorted().toArray(Path[]::new);
+            fingerprint.add(files.length);
+            for (Path file : files) {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                fingerprint.add(directory.relativize(file).toString()).add(Long.toString(attributes.size()))
+                    .add(Long.toString(attributes.lastModifiedTime().toMillis()));
+            }
+        }
+        return fingerprint.build();
+    }
+
+    private void close() {
+        closed = true;
+        for (ConcurrentHashMap<String, URLClassLoader> byParent : loaders.values()) {
+            for (URLClassLoader loader : byParent.values()) {
+                try {
+                    loader.close();
+                } catch (IOException e) {
+                    log.warn("Failed to close cached class loader", e);
+                }
+            }
+        }
+        loaders.clear();
+        stamps.clear();
+    }
+
+}
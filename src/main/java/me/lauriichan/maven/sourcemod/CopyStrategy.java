@@ -0,0 +1,15 @@
+package me.lauriichan.maven.sourcemod;
+
+public enum CopyStrategy {
+
+    ALWAYS,
+    METADATA,
+    HASH,
+    HARDLINK,
+    SYMLINK;
+
+    public boolean isLink() {
+        return this == HARDLINK || this == SYMLINK;
+    }
+
+}
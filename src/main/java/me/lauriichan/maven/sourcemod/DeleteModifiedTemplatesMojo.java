@@ -1,7 +1,6 @@
 package me.lauriichan.maven.sourcemod;
 
 import java.io.File;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -15,7 +14,6 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 
 import it.unimi.dsi.fastutil.objects.ObjectArrayFIFOQueue;
-import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 
 @Mojo(name = "deleteSources", defaultPhase = LifecyclePhase.PREPARE_PACKAGE, threadSafe = true)
@@ -99,42 +97,7 @@ public class DeleteModifiedTemplatesMojo extends AbstractMojo {
     }
 
     private List<SourceFile> findSources() {
-        if (roots == null || roots.isEmpty()) {
-            return Collections.emptyList();
-        }
-        ObjectArrayList<SourceFile> files = new ObjectArrayList<>();
-        ObjectArrayFIFOQueue<File> queue = new ObjectArrayFIFOQueue<>();
-        SimpleFilter filter = new SimpleFilter(includes, excludes, excludeByDefault);
-        File file;
-        File[] fileArray;
-        String path;
-        for (String root : roots) {
-            file = new File(root);
-            if (!file.exists() || !file.isDirectory()) {
-                continue;
-            }
-            int rootLength = file.getAbsolutePath().length() + 1;
-            queue.enqueue(file);
-            while (!queue.isEmpty()) {
-                file = queue.dequeue();
-                fileArray = file.listFiles();
-                if (fileArray == null || fileArray.length == 0) {
-                    continue;
-                }
-                for (File current : fileArray) {
-                    if (current.isDirectory()) {
-                        queue.enqueue(current);
-                        continue;
-                    }
-                    path = current.getAbsolutePath().substring(rootLength).replace('\\', '/');
-                    if (filter.isFiltered(path)) {
-                        continue;
-                    }
-                    files.add(new SourceFile(current, path));
-                }
-            }
-        }
-        return files;
+        return SourceScanner.scan(roots, new SimpleFilter(includes, excludes, excludeByDefault));
     }
 
     private void forceDelete(File file) {
@@ -0,0 +1,118 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.apache.maven.plugin.logging.Log;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+final class ExecutionClassLoader implements AutoCloseable {
+
+    @FunctionalInterface
+    interface Action<T, E extends Throwable> {
+
+        T call() throws E;
+
+    }
+
+    @FunctionalInterface
+    interface Task<E extends Throwable> {
+
+        void run() throws E;
+
+    }
+
+    private final ClassLoader loader;
+    private final boolean owned;
+    private final List<File> classpath;
+    private final ClassLoaderCache cache;
+
+    private ExecutionClassLoader(final ClassLoader loader, final boolean owned, final List<File> classpath, final ClassLoaderCache cache) {
+        this.loader = loader;
+        this.owned = owned;
+        this.classpath = classpath;
+        this.cache = cache;
+    }
+
+    public static ExecutionClassLoader create(final List<File> classpath, final ClassLoader parent, final ClassLoaderCache cache,
+        final Log log) throws IOException {
+        if (classpath.isEmpty()) {
+            return new ExecutionClassLoader(parent, false, classpath, cache);
+        }
+        ClassLoader shared = cache == null ? null : cache.get(classpath, parent, log);
+        if (shared == null) {
+            return new ExecutionClassLoader(URLClassLoader.newInstance(ClassLoaderCache.toUrls(classpath), parent), true, classpath,
+                cache);
+        }
+        // Directories are usually the module's own output, they change between executions and are never shared
+        ObjectArrayList<File> directories = new ObjectArrayList<>();
+        for (File file : classpath) {
+            if (!file.isFile()) {
+                directories.add(file);
+            }
+        }
+        if (directories.isEmpty()) {
+            return new ExecutionClassLoader(shared, false, classpath, cache);
+        }
+        return new ExecutionClassLoader(URLClassLoader.newInstance(ClassLoaderCache.toUrls(directories), shared), true, classpath,
+            cache);
+    }
+
+    public ClassLoader loader() {
+        return loader;
+    }
+
+    public Fingerprint addTo(final Fingerprint fingerprint, final File outputDirectory) throws IOException {
+        // The module's own output changes with every compile, stamping it would make every build after an edit a full one
+        File excluded = outputDirectory == null ? null : outputDirectory.getAbsoluteFile();
+        fingerprint.add(classpath.size());
+        for (File file : classpath) {
+            fingerprint.add(file.getAbsolutePath());
+            if (file.getAbsoluteFile().equals(excluded)) {
+                continue;
+            }
+            Path path = file.toPath();
+            fingerprint.add(cache == null ? ClassLoaderCache.stampOf(path) : cache.stamp(path));
+        }
+        return fingerprint;
+    }
+
+    public boolean outlives(final Class<?> type) {
+        // Classes of an owned loader die with this execution, anything pooled from them could never be used again
+        return !owned || type.getClassLoader() != loader;
+    }
+
+    public static <T, E extends Throwable> T call(final ClassLoader loader, final Action<T, E> action) throws E {
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(loader);
+        try {
+            return action.call();
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+
+    public static <E extends Throwable> void run(final ClassLoader loader, final Task<E> task) throws E {
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(loader);
+        try {
+            task.run();
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (owned && loader instanceof URLClassLoader urlLoader) {
+            urlLoader.close();
+        }
+    }
+
+}
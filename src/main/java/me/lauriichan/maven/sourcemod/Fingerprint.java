@@ -0,0 +1,98 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+final class Fingerprint {
+
+    private final MessageDigest digest = Hashing.newDigest();
+
+    public Fingerprint add(final String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        digest.update((byte) (bytes.length >>> 24));
+        digest.update((byte) (bytes.length >>> 16));
+        digest.update((byte) (bytes.length >>> 8));
+        digest.update((byte) bytes.length);
+        digest.update(bytes);
+        return this;
+    }
+
+    public Fingerprint add(final boolean value) {
+        return add(Boolean.toString(value));
+    }
+
+    public Fingerprint add(final Properties properties) {
+        if (properties == null) {
+            return add(0);
+        }
+        TreeSet<String> keys = new TreeSet<>(properties.stringPropertyNames());
+        add(keys.size());
+        for (String key : keys) {
+            add(key).add(properties.getProperty(key));
+        }
+        return this;
+    }
+
+    public Fingerprint add(final int value) {
+        return add(Integer.toString(value));
+    }
+
+    public Fingerprint addCodeSource(final Class<?> clazz) throws IOException {
+        add(clazz.getName());
+        CodeSource codeSource = clazz.getProtectionDomain().getCodeSource();
+        URL location = codeSource == null ? null : codeSource.getLocation();
+        if (location == null) {
+            return add("");
+        }
+        File file;
+        try {
+            file = new File(location.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return add(location.toExternalForm());
+        }
+        if (file.isFile()) {
+            return add(Hashing.hash(file.toPath()));
+        }
+        return addClassFiles(file.toPath(), clazz);
+    }
+
+    private Fingerprint addClassFiles(final Path directory, final Class<?> clazz) throws IOException {
+        // Only the class itself and its nested classes count, the rest of an output directory changes with every compile
+        String name = clazz.getName();
+        int nested = name.indexOf('$');
+        String topLevel = nested == -1 ? name : name.substring(0, nested);
+        int dot = topLevel.lastIndexOf('.');
+        Path packageDirectory = dot == -1 ? directory : directory.resolve(topLevel.substring(0, dot).replace('.', '/'));
+        String simpleName = topLevel.substring(dot + 1);
+        if (!Files.isDirectory(packageDirectory)) {
+            return add(0);
+        }
+        Path[] files;
+        try (Stream<Path> stream = Files.list(packageDirectory)) {
+            files = stream.filter(path -> {
+                String fileName = path.getFileName().toString();
+                return fileName.equals(simpleName + ".class") || fileName.startsWith(simpleName + '$') && fileName.endsWith(".class");
+            }).sorted().toArray(Path[]::new);
+        }
+        add(files.length);
+        for (Path path : files) {
+            add(path.getFileName().toString()).add(Hashing.hash(path));
+        }
+        return this;
+    }
+
+    public String build() {
+        return Hashing.toHex(digest.digest());
+    }
+
+}
@@ -0,0 +1,178 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import me.lauriichan.maven.sourcemod.api.ISourceGenerator;
+import me.lauriichan.maven.sourcemod.api.source.SourcePackage;
+
+final class GeneratorGraph {
+
+    private static final class Node {
+
+        private final int index;
+        private final String id;
+        private final ISourceGenerator generator;
+        private final ObjectArrayList<Node> dependents = new ObjectArrayList<>();
+        private int dependencies;
+
+        private Node(final int index, final String id, final ISourceGenerator generator) {
+            this.index = index;
+            this.id = id;
+            this.generator = generator;
+        }
+
+    }
+
+    private final Node[] nodes;
+
+    private GeneratorGraph(final Node[] nodes) {
+        this.nodes = nodes;
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    public static GeneratorGraph of(final SourceGeneratorConfiguration[] configurations, final List<ISourceGenerator> generators)
+        throws IllegalStateException {
+        // Generators without an explicit id share their class name as id, depending on it means depending on all of them
+        Object2ObjectLinkedOpenHashMap<String, ObjectArrayList<Node>> byId = new Object2ObjectLinkedOpenHashMap<>();
+        ObjectOpenHashSet<String> explicitIds = new ObjectOpenHashSet<>();
+        Node[] nodes = new Node[generators.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            SourceGeneratorConfiguration configuration = configurations[i];
+            String id = configuration.getId();
+            ObjectArrayList<Node> existing = byId.computeIfAbsent(id, ignore -> new ObjectArrayList<>());
+            if (!existing.isEmpty() && (configuration.hasId() || explicitIds.contains(id))) {
+                throw new IllegalStateException("There is already a generator with the id '" + id + "'");
+            }
+            if (configuration.hasId()) {
+                explicitIds.add(id);
+            }
+            existing.add(nodes[i] = new Node(i, id, generators.get(i)));
+        }
+        for (int i = 0; i < nodes.length; i++) {
+            Node node = nodes[i];
+            for (String dependency : configurations[i].getDependsOn()) {
+                ObjectArrayList<Node> others = byId.get(dependency);
+                if (others == null) {
+                    throw new IllegalStateException("Generator '" + node.id + "' depends on unknown generator '" + dependency + "'");
+                }
+                for (Node other : others) {
+                    if (!other.dependents.contains(node)) {
+                        other.dependents.add(node);
+                        node.dependencies++;
+                    }
+                }
+            }
+        }
+        int[] remaining = new int[nodes.length];
+        ObjectArrayList<Node> ordered = new ObjectArrayList<>(nodes.length);
+        for (Node node : nodes) {
+            if ((remaining[node.index] = node.dependencies) == 0) {
+                ordered.add(node);
+            }
+        }
+        for (int i = 0; i < ordered.size(); i++) {
+            for (Node dependent : ordered.get(i).dependents) {
+                if (--remaining[dependent.index] == 0) {
+                    ordered.add(dependent);
+                }
+            }
+        }
+        if (ordered.size() != nodes.length) {
+            StringBuilder builder = new StringBuilder();
+            for (Node node : nodes) {
+                if (remaining[node.index] != 0) {
+                    builder.append(builder.length() == 0 ? "" : ", ").append(node.id);
+                }
+            }
+            throw new IllegalStateException("Generators have cyclic dependencies: " + builder);
+        }
+        return new GeneratorGraph(ordered.toArray(Node[]::new));
+    }
+
+    public void run(final SourcePackage root, final int threads, final ClassLoader loader, final PipelineTimings timings)
+        throws Exception {
+        if (threads <= 1 || nodes.length <= 1) {
+            for (Node node : nodes) {
+                ExecutionClassLoader.run(loader, () -> {
+                    long start = timings.now();
+                    node.generator.generateSources(root);
+                    timings.record("generate", node.generator.getClass().getName(), start);
+                });
+            }
+            return;
+        }
+        AtomicInteger threadId = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, nodes.length), runnable -> {
+            Thread thread = new Thread(runnable, "SourceGeneration-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            ExecutorCompletionService<Node> completion = new ExecutorCompletionService<>(executor);
+            int[] remaining = new int[nodes.length];
+            int running = 0;
+            for (Node node : nodes) {
+                if ((remaining[node.index] = node.dependencies) == 0) {
+                    submit(completion, node, root, loader, timings);
+                    running++;
+                }
+            }
+            Exception failure = null;
+            while (running > 0) {
+                running--;
+                try {
+                    Node node = completion.take().get();
+                    if (failure != null) {
+                        continue;
+                    }
+                    for (Node dependent : node.dependents) {
+                        if (--remaining[dependent.index] == 0) {
+                            submit(completion, dependent, root, loader, timings);
+                            running++;
+                        }
+                    }
+                } catch (ExecutionException e) {
+                    Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    if (failure == null) {
+                        failure = cause;
+                    } else {
+                        failure.addSuppressed(cause);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void submit(final ExecutorCompletionService<Node> completion, final Node node, final SourcePackage root,
+        final ClassLoader loader, final PipelineTimings timings) {
+        completion.submit(() -> {
+            try {
+                ExecutionClassLoader.run(loader, () -> {
+                    long start = timings.now();
+                    node.generator.generateSources(root);
+                    timings.record("generate", node.generator.getClass().getName(), start);
+                });
+            } catch (RuntimeException e) {
+                throw new IllegalStateException("Generator '" + node.id + "' failed", e);
+            }
+            return node;
+        });
+    }
+
+}
@@ -0,0 +1,42 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+final class Hashing {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private Hashing() {
+        throw new UnsupportedOperationException();
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+        }
+    }
+
+    public static String hash(final byte[] data) {
+        return toHex(newDigest().digest(data));
+    }
+
+    public static String hash(final Path path) throws IOException {
+        return hash(Files.readAllBytes(path));
+    }
+
+    public static String toHex(final byte[] data) {
+        char[] chars = new char[data.length * 2];
+        for (int i = 0; i < data.length; i++) {
+            chars[i * 2] = HEX[(data[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[data[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+}
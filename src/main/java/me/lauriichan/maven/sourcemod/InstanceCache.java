@@ -0,0 +1,107 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.aether.SessionData;
+
+import me.lauriichan.maven.sourcemod.api.ISourceLifecycle;
+import me.lauriichan.maven.sourcemod.api.SourceContext;
+
+final class InstanceCache {
+
+    private final SourceContext context = new SourceContext();
+    private final ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, ConcurrentLinkedDeque<ISourceLifecycle>>> idle = new ConcurrentHashMap<>();
+    private final AtomicInteger hits = new AtomicInteger(), misses = new AtomicInteger();
+    private final Log log;
+    private boolean closed;
+
+    private InstanceCache(final Log log) {
+        this.log = log;
+    }
+
+    public static InstanceCache get(final MavenSession session, final Log log) {
+        if (session == null || session.getRepositorySession() == null) {
+            return null;
+        }
+        SessionData data = session.getRepositorySession().getData();
+        // The class itself is the key so that plugin realms never see each others instances
+        Object key = InstanceCache.class;
+        while (true) {
+            Object cache = data.get(key);
+            if (cache != null) {
+                return (InstanceCache) cache;
+            }
+            InstanceCache created = new InstanceCache(log);
+            if (data.set(key, null, created)) {
+                if (!SessionHooks.onEnd(session, created::close, log)) {
+                    // Without a way to finish them at the end, instances must not outlive the execution
+                    created.closed = true;
+                }
+                return created;
+            }
+        }
+    }
+
+    public static String key(final Properties properties) {
+        return new Fingerprint().add(properties).build();
+    }
+
+    public SourceContext context() {
+        return context;
+    }
+
+    public int hits() {
+        return hits.get();
+    }
+
+    public int misses() {
+        return misses.get();
+    }
+
+    public ISourceLifecycle take(final Class<?> type, final String key) {
+        ConcurrentHashMap<String, ConcurrentLinkedDeque<ISourceLifecycle>> byKey = idle.get(type);
+        ConcurrentLinkedDeque<ISourceLifecycle> instances = byKey == null ? null : byKey.get(key);
+        ISourceLifecycle instance = instances == null ? null : instances.pollFirst();
+        if (instance == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return instance;
+    }
+
+    public synchronized boolean offer(final Class<?> type, final String key, final ISourceLifecycle instance) {
+        if (closed) {
+            return false;
+        }
+        idle.computeIfAbsent(type, ignore -> new ConcurrentHashMap<>()).computeIfAbsent(key, ignore -> new ConcurrentLinkedDeque<>())
+            .addFirst(instance);
+        return true;
+    }
+
+    private void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        for (ConcurrentHashMap<String, ConcurrentLinkedDeque<ISourceLifecycle>> byKey : idle.values()) {
+            for (ConcurrentLinkedDeque<ISourceLifecycle> instances : byKey.values()) {
+                ISourceLifecycle instance;
+                while ((instance = instances.pollFirst()) != null) {
+                    ISourceLifecycle finished = instance;
+                    try {
+                        ExecutionClassLoader.run(finished.getClass().getClassLoader(), () -> finished.onFinish(context));
+                    } catch (RuntimeException | LinkageError e) {
+                        log.warn("Failed to finish pooled instance of '" + instance.getClass().getName() + "'", e);
+                    }
+                }
+            }
+        }
+        idle.clear();
+    }
+
+}
@@ -0,0 +1,217 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.jboss.forge.roaster.Roaster;
+import org.jboss.forge.roaster.model.source.JavaSource;
+
+final class LazySource {
+
+    static final class Context {
+
+        private final Charset charset;
+        private final SessionSourceCache cache;
+        private final ResidentSources resident;
+        private final PipelineTimings timings;
+
+        public Context(final Charset charset, final SessionSourceCache cache, final ResidentSources resident,
+            final PipelineTimings timings) {
+            this.charset = charset;
+            this.cache = cache;
+            this.resident = resident;
+            this.timings = timings;
+        }
+
+    }
+
+    private final File file;
+    private final String hash;
+    private final Context context;
+    private final String packageName;
+    private final String name;
+
+    private volatile JavaSource<?> source;
+    private volatile SourceMetadata metadata;
+
+    private SoftReference<JavaSource<?>> evicted;
+    private Future<?> pending;
+    private boolean finished;
+    private volatile boolean shared;
+    private long baseline = -1;
+
+    private LazySource(final File file, final String hash, final Context context, final String packageName, final String name,
+        final JavaSource<?> source, final SourceMetadata metadata) {
+        this.file = file;
+        this.hash = hash;
+        this.context = context;
+        this.packageName = packageName;
+        this.name = name;
+        this.source = source;
+        this.metadata = metadata;
+    }
+
+    public static LazySource of(final File file, final String hash, final SourceMetadata metadata, final Context context) {
+        return new LazySource(file, hash, context, metadata.packageName(), metadata.name(), null, metadata);
+    }
+
+    public static LazySource of(final File file, final String hash, final SourceHeader header, final Context context) {
+        String name = header.typeName();
+        if (name == null) {
+            name = file.getName();
+            if (name.endsWith(".java")) {
+                name = name.substring(0, name.length() - 5);
+            }
+        }
+        return new LazySource(file, hash, context, header.packageName(), name, null, null);
+    }
+
+    public static LazySource of(final JavaSource<?> source) {
+        return new LazySource(null, null, null, source.getPackage(), source.getName(), source, null);
+    }
+
+    public static LazySource finished(final File output, final Future<?> pending, final JavaSource<?> source, final Context context) {
+        SourceMetadata metadata = SourceMetadata.of(source);
+        LazySource lazySource = new LazySource(output, null, context, metadata.packageName(), metadata.name(), null, metadata);
+        lazySource.evicted = new SoftReference<>(source);
+        lazySource.pending = pending;
+        lazySource.finished = true;
+        lazySource.baseline = SessionSourceCache.modificationCount(source);
+        return lazySource;
+    }
+
+    public String packageName() {
+        return packageName;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public boolean isParsed() {
+        return current() != null;
+    }
+
+    public boolean isGenerated() {
+        return file == null;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public synchronized boolean isModifiedAfterFinish() {
+        // Changes to a finished source can't reach its output anymore, they must not go unnoticed
+        JavaSource<?> source = current();
+        return finished && source != null && baseline >= 0 && SessionSourceCache.modificationCount(source) != baseline;
+    }
+
+    public SourceMetadata metadata() {
+        if (file == null) {
+            return SourceMetadata.of(source);
+        }
+        SourceMetadata metadata = this.metadata;
+        if (metadata == null) {
+            this.metadata = metadata = SourceMetadata.of(get());
+        }
+        return metadata;
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    public synchronized boolean release() {
+        JavaSource<?> source = current();
+        if (file == null || source == null || context.cache == null) {
+            return false;
+        }
+        return context.cache.offer(file, hash, context.charset, source, baseline);
+    }
+
+    public SourceMetadata cachedMetadata() {
+        return metadata;
+    }
+
+    synchronized void evict() {
+        if (source != null) {
+            evicted = new SoftReference<>(source);
+            source = null;
+        }
+    }
+
+    private synchronized JavaSource<?> current() {
+        JavaSource<?> source = this.source;
+        if (source == null && evicted != null) {
+            source = evicted.get();
+        }
+        return source;
+    }
+
+    public JavaSource<?> get() {
+        JavaSource<?> source = this.source;
+        if (source == null) {
+            source = load();
+        }
+        if (context != null && context.resident != null) {
+            context.resident.touch(this);
+        }
+        return source;
+    }
+
+    private synchronized JavaSource<?> load() {
+        JavaSource<?> source = this.source;
+        if (source != null) {
+            return source;
+        }
+        if (evicted != null) {
+            source = evicted.get();
+            evicted = null;
+            if (source != null) {
+                return this.source = source;
+            }
+            if (context.resident != null) {
+                context.resident.countReparse();
+            }
+        }
+        if (pending != null) {
+            awaitPending();
+        }
+        if (context.cache != null && (source = context.cache.take(file, hash, context.charset)) != null) {
+            this.shared = true;
+        } else {
+            long start = context.timings.now();
+            try {
+                source = Roaster.parse(JavaSource.class, new String(Files.readAllBytes(file.toPath()), context.charset));
+            } catch (IOException | RuntimeException e) {
+                throw new IllegalStateException("Failed to parse source file '" + file + "'", e);
+            }
+            context.timings.record("parse", start);
+        }
+        if (metadata == null) {
+            metadata = SourceMetadata.of(source);
+        }
+        if (context.cache != null || finished) {
+            baseline = SessionSourceCache.modificationCount(source);
+        }
+        return this.source = source;
+    }
+
+    private void awaitPending() {
+        try {
+            pending.get();
+            pending = null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for source file '" + file + "'", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to write source file '" + file + "'", e.getCause());
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Properties;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import me.lauriichan.maven.sourcemod.api.ISourceLifecycle;
+import me.lauriichan.maven.sourcemod.api.SourceBatch;
+import me.lauriichan.maven.sourcemod.api.SourceContext;
+
+final class LifecycleRun implements AutoCloseable {
+
+    private static final class Instance {
+
+        private final Class<?> type;
+        private final String key;
+        private final ISourceLifecycle lifecycle;
+        private boolean reusable = true;
+
+        private Instance(final Class<?> type, final String key, final ISourceLifecycle lifecycle) {
+            this.type = type;
+            this.key = key;
+            this.lifecycle = lifecycle;
+        }
+
+    }
+
+    private final InstanceCache cache;
+    private final SourceContext context;
+    private final ExecutionClassLoader classLoader;
+    private final ClassLoader loader;
+    private final ObjectArrayList<Instance> instances = new ObjectArrayList<>();
+
+    private SourceBatch batch;
+
+    public LifecycleRun(final InstanceCache cache, final ExecutionClassLoader classLoader) {
+        this.cache = cache;
+        this.context = cache == null ? new SourceContext() : cache.context();
+        this.classLoader = classLoader;
+        this.loader = classLoader.loader();
+    }
+
+    public InstanceCache cache() {
+        return cache;
+    }
+
+    public <T> T create(final Class<T> type, final Properties properties) throws Throwable {
+        if (!ISourceLifecycle.class.isAssignableFrom(type)) {
+            return ExecutionClassLoader.call(loader, () -> construct(type, properties));
+        }
+        String key = cache == null ? null : InstanceCache.key(properties);
+        ISourceLifecycle lifecycle = cache == null ? null : cache.take(type, key);
+        if (lifecycle == null) {
+            lifecycle = ExecutionClassLoader.call(loader, () -> {
+                ISourceLifecycle created = (ISourceLifecycle) construct(type, properties);
+                created.onStart(context);
+                return created;
+            });
+        }
+        instances.add(new Instance(type, key, lifecycle));
+        return type.cast(lifecycle);
+    }
+
+    public void begin(final SourceBatch batch) {
+        this.batch = batch;
+        ExecutionClassLoader.run(loader, () -> {
+            for (Instance instance : instances) {
+                instance.lifecycle.onBatchBegin(batch);
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        Throwable failure = ExecutionClassLoader.call(loader, this::finish);
+        instances.clear();
+        if (failure instanceof RuntimeException runtime) {
+            throw runtime;
+        } else if (failure != null) {
+            throw (LinkageError) failure;
+        }
+    }
+
+    private Throwable finish() {
+        Throwable failure = null;
+        if (batch != null) {
+            for (Instance instance : instances) {
+                try {
+                    instance.lifecycle.onBatchEnd(batch);
+                } catch (RuntimeException | LinkageError e) {
+                    instance.reusable = false;
+                    failure = suppress(failure, e);
+                }
+            }
+        }
+        for (Instance instance : instances) {
+            if (instance.reusable && cache != null && classLoader.outlives(instance.type)
+                && cache.offer(instance.type, instance.key, instance.lifecycle)) {
+                continue;
+            }
+            try {
+                instance.lifecycle.onFinish(context);
+            } catch (RuntimeException | LinkageError e) {
+                failure = suppress(failure, e);
+            }
+        }
+        return failure;
+    }
+
+    private static Throwable suppress(final Throwable failure, final Throwable error) {
+        if (failure == null) {
+            return error;
+        }
+        failure.addSuppressed(error);
+        return failure;
+    }
+
+    private static <T> T construct(final Class<T> type, final Properties properties) throws Throwable {
+        MethodHandles.Lookup privateLookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        MethodHandle handle;
+        try {
+            handle = privateLookup.findConstructor(type, MethodType.methodType(void.class, Properties.class));
+        } catch (NoSuchMethodException e0) {
+            handle = privateLookup.findConstructor(type, MethodType.methodType(void.class));
+            return type.cast(handle.invoke());
+        }
+        return type.cast(handle.invoke(properties));
+    }
+
+}
@@ -0,0 +1,82 @@
+package me.lauriichan.maven.sourcemod;
+
+import org.jboss.forge.roaster.model.source.JavaSource;
+
+import me.lauriichan.maven.sourcemod.api.ISourceTransformer;
+import me.lauriichan.maven.sourcemod.api.ThreadSafe;
+
+final class LoadedTransformer {
+
+    private final ISourceTransformer transformer;
+    private final boolean threadSafe;
+    private final PrefilterMatcher prefilter;
+    private final long budget;
+
+    public LoadedTransformer(final ISourceTransformer transformer, final long budget) {
+        this.transformer = transformer;
+        this.budget = budget;
+        this.threadSafe = transformer.getClass().isAnnotationPresent(ThreadSafe.class);
+        this.prefilter = PrefilterMatcher.compile(transformer.prefilter());
+    }
+
+    public ISourceTransformer transformer() {
+        return transformer;
+    }
+
+    public String name() {
+        return transformer.getClass().getName();
+    }
+
+    public boolean exceedsBudget(final long nanos) {
+        return budget > 0 && nanos > budget;
+    }
+
+    public long budgetMillis() {
+        return budget / 1_000_000L;
+    }
+
+    public boolean isThreadSafe() {
+        return threadSafe;
+    }
+
+    public boolean hasPrefilter() {
+        return prefilter != null;
+    }
+
+    public boolean accepts(final RawSource source) {
+        return prefilter == null || prefilter.matches(source);
+    }
+
+    public boolean canTransform(final JavaSource<?> source, final long[] elapsed) {
+        if (threadSafe) {
+            return timedCanTransform(source, elapsed);
+        }
+        synchronized (transformer) {
+            return timedCanTransform(source, elapsed);
+        }
+    }
+
+    public long transform(final JavaSource<?> source) {
+        if (threadSafe) {
+            return timedTransform(source);
+        }
+        synchronized (transformer) {
+            return timedTransform(source);
+        }
+    }
+
+    // Only the time spent inside the transformer counts, waiting for its lock says nothing about its cost
+    private boolean timedCanTransform(final JavaSource<?> source, final long[] elapsed) {
+        long start = System.nanoTime();
+        boolean accepted = transformer.canTransform(source);
+        elapsed[0] = System.nanoTime() - start;
+        return accepted;
+    }
+
+    private long timedTransform(final JavaSource<?> source) {
+        long start = System.nanoTime();
+        transformer.transform(source);
+        return System.nanoTime() - start;
+    }
+
+}
@@ -0,0 +1,83 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class MetadataCache {
+
+    private static final int MAGIC = 0x534D4D43;
+    private static final int VERSION = 1;
+
+    private static final class Entry {
+
+        private final String hash;
+        private final SourceMetadata metadata;
+
+        private Entry(final String hash, final SourceMetadata metadata) {
+            this.hash = hash;
+            this.metadata = metadata;
+        }
+
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public SourceMetadata get(final String path, final String hash) {
+        Entry entry = entries.get(path);
+        return entry == null || !entry.hash.equals(hash) ? null : entry.metadata;
+    }
+
+    public void put(final String path, final String hash, final SourceMetadata metadata) {
+        entries.put(path, new Entry(hash, metadata));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public static MetadataCache load(final File file) {
+        MetadataCache cache = new MetadataCache();
+        if (!file.isFile()) {
+            return cache;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return cache;
+            }
+            int size = input.readInt();
+            for (int i = 0; i < size; i++) {
+                String path = input.readUTF();
+                String hash = input.readUTF();
+                cache.entries.put(path, new Entry(hash, SourceMetadata.read(input)));
+            }
+            return cache;
+        } catch (IOException e) {
+            return new MetadataCache();
+        }
+    }
+
+    public void save(final File file) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(buffer)) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(entries.size());
+            for (Map.Entry<String, Entry> entry : new TreeMap<>(entries).entrySet()) {
+                output.writeUTF(entry.getKey());
+                output.writeUTF(entry.getValue().hash);
+                entry.getValue().metadata.write(output);
+            }
+        }
+        Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+        SourceOutput.writeIfChanged(file.toPath(), buffer.toByteArray());
+    }
+
+}
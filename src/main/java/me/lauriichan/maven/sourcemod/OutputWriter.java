@@ -0,0 +1,153 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+final class OutputWriter implements AutoCloseable {
+
+    private static final int QUEUE_PER_THREAD = 32;
+
+    public static interface Listener {
+
+        void written(String name, boolean changed);
+
+        void failed(String name, Throwable error);
+
+    }
+
+    private static final class Output {
+
+        private final String name;
+        private final Future<Boolean> future;
+
+        private Output(final String name, final Future<Boolean> future) {
+            this.name = name;
+            this.future = future;
+        }
+
+    }
+
+    private final ExecutorService executor;
+    private final Semaphore capacity;
+    private final ConcurrentHashMap<Path, Boolean> directories = new ConcurrentHashMap<>();
+    private final ObjectArrayList<Output> outputs = new ObjectArrayList<>();
+    private final PipelineTimings timings;
+
+    public OutputWriter(final int threads, final String name, final PipelineTimings timings) {
+        this.timings = timings;
+        if (threads <= 0) {
+            this.executor = null;
+            this.capacity = null;
+            return;
+        }
+        this.capacity = new Semaphore(threads * QUEUE_PER_THREAD);
+        AtomicInteger threadId = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Future<Boolean> write(final String name, final Path target, final Callable<byte[]> content) throws IOException {
+        Future<Boolean> future;
+        if (executor == null) {
+            CompletableFuture<Boolean> result = new CompletableFuture<>();
+            try {
+                result.complete(writeNow(target, content));
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+            future = result;
+        } else {
+            try {
+                capacity.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the output queue", e);
+            }
+            try {
+                future = executor.submit(() -> {
+                    try {
+                        return writeNow(target, content);
+                    } finally {
+                        capacity.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                capacity.release();
+                throw e;
+            }
+        }
+        synchronized (outputs) {
+            outputs.add(new Output(name, future));
+        }
+        return future;
+    }
+
+    public int finish(final Listener listener) throws IOException {
+        Output[] outputs;
+        synchronized (this.outputs) {
+            outputs = this.outputs.toArray(Output[]::new);
+            this.outputs.clear();
+        }
+        int failures = 0;
+        for (Output output : outputs) {
+            try {
+                listener.written(output.name, output.future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for outputs", e);
+            } catch (ExecutionException e) {
+                failures++;
+                listener.failed(output.name, e.getCause());
+            }
+        }
+        return failures;
+    }
+
+    private boolean writeNow(final Path target, final Callable<byte[]> content) throws Exception {
+        byte[] bytes = content.call();
+        long start = timings.now();
+        Path parent = target.toAbsolutePath().getParent();
+        try {
+            directories.computeIfAbsent(parent, path -> {
+                try {
+                    Files.createDirectories(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return Boolean.TRUE;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        boolean changed = SourceOutput.writeIfChanged(target, bytes);
+        timings.record("write", start);
+        if (changed) {
+            timings.written(bytes.length);
+        }
+        return changed;
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+package me.lauriichan.maven.sourcemod;
+
+final class PackageGlob {
+
+    private final String glob;
+    private final String[] segments;
+
+    private PackageGlob(final String glob) {
+        this.glob = glob;
+        this.segments = glob.split("\\.");
+    }
+
+    public static PackageGlob compile(final String glob) {
+        return new PackageGlob(glob.trim());
+    }
+
+    public String glob() {
+        return glob;
+    }
+
+    public boolean matches(final String packageName) {
+        String[] parts = packageName == null || packageName.isEmpty() ? new String[0] : packageName.split("\\.");
+        return matches(parts, 0, 0);
+    }
+
+    private boolean matches(final String[] parts, int partIdx, int segmentIdx) {
+        while (segmentIdx < segments.length) {
+            String segment = segments[segmentIdx];
+            if (segment.equals("**")) {
+                if (segmentIdx + 1 == segments.length) {
+                    return true;
+                }
+                for (int idx = partIdx; idx <= parts.length; idx++) {
+                    if (matches(parts, idx, segmentIdx + 1)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (partIdx == parts.length || !matchesSegment(segment, parts[partIdx])) {
+                return false;
+            }
+            partIdx++;
+            segmentIdx++;
+        }
+        return partIdx == parts.length;
+    }
+
+    static boolean matchesSegment(final String pattern, final String value) {
+        return matchesSegment(pattern, 0, value, 0);
+    }
+
+    private static boolean matchesSegment(final String pattern, int patternIdx, final String value, int valueIdx) {
+        while (patternIdx < pattern.length()) {
+            char ch = pattern.charAt(patternIdx);
+            if (ch == '*') {
+                if (patternIdx + 1 == pattern.length()) {
+                    return true;
+                }
+                for (int idx = valueIdx; idx <= value.length(); idx++) {
+                    if (matchesSegment(pattern, patternIdx + 1, value, idx)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (valueIdx == value.length() || (ch != '?' && ch != value.charAt(valueIdx))) {
+                return false;
+            }
+            patternIdx++;
+            valueIdx++;
+        }
+        return valueIdx == value.length();
+    }
+
+}
@@ -0,0 +1,215 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.maven.plugin.logging.Log;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenHashMap;
+
+final class PipelineTimings {
+
+    public static final PipelineTimings DISABLED = new PipelineTimings(false);
+
+    private static final class Stat {
+
+        private final String phase, subject;
+        private final LongArrayList samples = new LongArrayList();
+        private long total;
+
+        private Stat(final String phase, final String subject) {
+            this.phase = phase;
+            this.subject = subject;
+        }
+
+        private synchronized void record(final long nanos) {
+            samples.add(nanos);
+            total += nanos;
+        }
+
+        private synchronized long[] sorted() {
+            long[] sorted = samples.toLongArray();
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+    }
+
+    private final boolean enabled;
+    private final Object2ObjectLinkedOpenHashMap<String, Stat> stats = new Object2ObjectLinkedOpenHashMap<>();
+    private final AtomicLong bytesRead = new AtomicLong(), bytesWritten = new AtomicLong();
+
+    public PipelineTimings() {
+        this(true);
+    }
+
+    private PipelineTimings(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long now() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public void record(final String phase, final long start) {
+        record(phase, null, start);
+    }
+
+    public void record(final String phase, final String subject, final long start) {
+        if (!enabled) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        stat(phase, subject).record(nanos);
+    }
+
+    public void add(final String phase, final String subject, final long nanos) {
+        if (enabled) {
+            stat(phase, subject).record(nanos);
+        }
+    }
+
+    public void read(final long bytes) {
+        if (enabled) {
+            bytesRead.addAndGet(bytes);
+        }
+    }
+
+    public void written(final long bytes) {
+        if (enabled) {
+            bytesWritten.addAndGet(bytes);
+        }
+    }
+
+    private Stat stat(final String phase, final String subject) {
+        String key = subject == null ? phase : phase + ' ' + subject;
+        synchronized (stats) {
+            Stat stat = stats.get(key);
+            if (stat == null) {
+                stats.put(key, stat = new Stat(phase, subject));
+            }
+            return stat;
+        }
+    }
+
+    private Stat[] stats() {
+        synchronized (stats) {
+            return stats.values().toArray(Stat[]::new);
+        }
+    }
+
+    public void log(final Log log) {
+        if (!enabled) {
+            return;
+        }
+        log.info(String.format(Locale.ROOT, "%-48s %8s %10s %9s %9s %9s %9s", "Phase", "Count", "Total ms", "p50 ms", "p90 ms",
+            "p99 ms", "Max ms"));
+        for (Stat stat : stats()) {
+            long[] sorted = stat.sorted();
+            if (sorted.length == 0) {
+                continue;
+            }
+            String name = stat.subject == null ? stat.phase : stat.phase + ' ' + shorten(stat.subject);
+            log.info(String.format(Locale.ROOT, "%-48s %8d %10.1f %9.2f %9.2f %9.2f %9.2f", name, sorted.length,
+                millis(sum(sorted)), millis(percentile(sorted, 50)), millis(percentile(sorted, 90)), millis(percentile(sorted, 99)),
+                millis(sorted[sorted.length - 1])));
+        }
+        log.info("Read " + bytesRead.get() + " bytes, wrote " + bytesWritten.get() + " bytes");
+    }
+
+    public void write(final File file, final String goal, final String executionId) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        StringBuilder builder = new StringBuilder();
+        builder.append("{\n  \"goal\": ").append(quote(goal)).append(",\n  \"execution\": ").append(quote(executionId));
+        builder.append(",\n  \"bytesRead\": ").append(bytesRead.get()).append(",\n  \"bytesWritten\": ").append(bytesWritten.get());
+        builder.append(",\n  \"phases\": [");
+        boolean first = true;
+        for (Stat stat : stats()) {
+            long[] sorted = stat.sorted();
+            if (sorted.length == 0) {
+                continue;
+            }
+            builder.append(first ? "\n" : ",\n").append("    {\"phase\": ").append(quote(stat.phase));
+            if (stat.subject != null) {
+                builder.append(", \"subject\": ").append(quote(stat.subject));
+            }
+            builder.append(", \"count\": ").append(sorted.length).append(", \"totalNanos\": ").append(sum(sorted));
+            builder.append(", \"p50Nanos\": ").append(percentile(sorted, 50)).append(", \"p90Nanos\": ").append(percentile(sorted, 90));
+            builder.append(", \"p99Nanos\": ").append(percentile(sorted, 99)).append(", \"maxNanos\": ")
+                .append(sorted[sorted.length - 1]).append('}');
+            first = false;
+        }
+        builder.append(first ? "]\n}\n" : "\n  ]\n}\n");
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        SourceOutput.writeIfChanged(file.toPath(), builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long sum(final long[] sorted) {
+        long sum = 0;
+        for (long value : sorted) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    private static long percentile(final long[] sorted, final int percentile) {
+        int index = (int) Math.ceil(percentile / 100d * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static double millis(final long nanos) {
+        return nanos / 1_000_000d;
+    }
+
+    private static String shorten(final String subject) {
+        int idx = subject.lastIndexOf('.');
+        return idx == -1 ? subject : subject.substring(idx + 1);
+    }
+
+    private static String quote(final String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+            case '"':
+            case '\\':
+                builder.append('\\').append(ch);
+                break;
+            case '\n':
+                builder.append("\\n");
+                break;
+            case '\r':
+                builder.append("\\r");
+                break;
+            case '\t':
+                builder.append("\\t");
+                break;
+            default:
+                if (ch < 0x20) {
+                    builder.append(String.format(Locale.ROOT, "\\u%04x", (int) ch));
+                } else {
+                    builder.append(ch);
+                }
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+}
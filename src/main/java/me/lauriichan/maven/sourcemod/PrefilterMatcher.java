@@ -0,0 +1,102 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import me.lauriichan.maven.sourcemod.api.SourcePrefilter;
+
+final class PrefilterMatcher {
+
+    private static final class Encoded {
+
+        private final Charset charset;
+        private final String[] annotations;
+        private final String[] tokens;
+
+        private Encoded(final Charset charset, final String[] annotations, final String[] tokens) {
+            this.charset = charset;
+            this.annotations = annotations;
+            this.tokens = tokens;
+        }
+
+    }
+
+    private final List<String> annotations;
+    private final List<String> tokens;
+    private final PackageGlob[] packages;
+
+    private volatile Encoded encoded;
+
+    private PrefilterMatcher(final SourcePrefilter prefilter) {
+        this.annotations = prefilter.annotations();
+        this.tokens = prefilter.tokens();
+        this.packages = prefilter.packageGlobs().stream().map(PackageGlob::compile).toArray(PackageGlob[]::new);
+    }
+
+    public static PrefilterMatcher compile(final SourcePrefilter prefilter) {
+        if (prefilter == null || prefilter.isAny()) {
+            return null;
+        }
+        return new PrefilterMatcher(prefilter);
+    }
+
+    public boolean matches(final RawSource source) {
+        if (packages.length != 0 && !matchesPackage(source.packageName())) {
+            return false;
+        }
+        if (tokens.isEmpty() && annotations.isEmpty()) {
+            return true;
+        }
+        Encoded encoded = encoded(source.charset());
+        if (encoded.tokens.length != 0 && !containsToken(encoded.tokens, source.text())) {
+            return false;
+        }
+        return encoded.annotations.length == 0 || containsAnnotation(encoded.annotations, source);
+    }
+
+    private Encoded encoded(final Charset charset) {
+        // Raw sources are latin-1 views of their bytes, so the values have to be encoded with the same charset to match
+        Encoded encoded = this.encoded;
+        if (encoded == null || !encoded.charset.equals(charset)) {
+            this.encoded = encoded = new Encoded(charset, latin1(annotations, charset), latin1(tokens, charset));
+        }
+        return encoded;
+    }
+
+    private boolean matchesPackage(final String packageName) {
+        for (PackageGlob glob : packages) {
+            if (glob.matches(packageName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsToken(final String[] tokens, final String text) {
+        for (String token : tokens) {
+            if (text.contains(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsAnnotation(final String[] annotations, final RawSource source) {
+        for (String annotation : annotations) {
+            if (source.containsIdentifier(annotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] latin1(final List<String> values, final Charset charset) {
+        String[] array = new String[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = new String(values.get(i).getBytes(charset), StandardCharsets.ISO_8859_1);
+        }
+        return array;
+    }
+
+}
@@ -0,0 +1,59 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+final class RawSource {
+
+    private final byte[] content;
+    private final Charset charset;
+
+    private String text;
+    private SourceHeader header;
+
+    public RawSource(final byte[] content, final Charset charset) {
+        this.content = content;
+        this.charset = charset;
+    }
+
+    public byte[] content() {
+        return content;
+    }
+
+    public Charset charset() {
+        return charset;
+    }
+
+    public String text() {
+        if (text == null) {
+            text = new String(content, StandardCharsets.ISO_8859_1);
+        }
+        return text;
+    }
+
+    public SourceHeader header() {
+        if (header == null) {
+            header = SourceHeader.scan(text(), charset);
+        }
+        return header;
+    }
+
+    public String packageName() {
+        return header().packageName();
+    }
+
+    public boolean containsIdentifier(final String identifier) {
+        String text = text();
+        int idx = 0;
+        while ((idx = text.indexOf(identifier, idx)) != -1) {
+            int end = idx + identifier.length();
+            if ((idx == 0 || !Character.isJavaIdentifierPart(text.charAt(idx - 1)))
+                && (end == text.length() || !Character.isJavaIdentifierPart(text.charAt(end)))) {
+                return true;
+            }
+            idx = end;
+        }
+        return false;
+    }
+
+}
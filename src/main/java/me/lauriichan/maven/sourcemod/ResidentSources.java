@@ -0,0 +1,53 @@
+package me.lauriichan.maven.sourcemod;
+
+import it.unimi.dsi.fastutil.objects.ObjectLinkedOpenHashSet;
+
+final class ResidentSources {
+
+    private final int limit;
+    private final ObjectLinkedOpenHashSet<LazySource> sources = new ObjectLinkedOpenHashSet<>();
+
+    private int peak;
+    private int evicted;
+    private int reparsed;
+
+    public ResidentSources(final int limit) {
+        this.limit = Math.max(1, limit);
+    }
+
+    public void touch(final LazySource source) {
+        LazySource eldest = null;
+        synchronized (this) {
+            sources.addAndMoveToLast(source);
+            if (sources.size() > limit) {
+                eldest = sources.removeFirst();
+                evicted++;
+            }
+            peak = Math.max(peak, sources.size());
+        }
+        if (eldest != null) {
+            eldest.evict();
+        }
+    }
+
+    synchronized void countReparse() {
+        reparsed++;
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public synchronized int peak() {
+        return peak;
+    }
+
+    public synchronized int evicted() {
+        return evicted;
+    }
+
+    public synchronized int reparsed() {
+        return reparsed;
+    }
+
+}
@@ -0,0 +1,205 @@
+package me.lauriichan.maven.sourcemod;
+
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.aether.SessionData;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+final class SessionHooks {
+
+    private final ObjectArrayList<Runnable> hooks = new ObjectArrayList<>();
+    private final ObjectArrayList<Log> logs = new ObjectArrayList<>();
+    private boolean done;
+
+    public static boolean onEnd(final MavenSession session, final Runnable hook, final Log log) {
+        if (session == null || session.getRepositorySession() == null || session.getRequest() == null) {
+            return false;
+        }
+        SessionData data = session.getRepositorySession().getData();
+        // The class itself is the key so that plugin realms never see each others instances
+        Object key = SessionHooks.class;
+        SessionHooks hooks;
+        while (true) {
+            Object current = data.get(key);
+            if (current != null) {
+                hooks = (SessionHooks) current;
+                break;
+            }
+            SessionHooks created = new SessionHooks();
+            if (data.set(key, null, created)) {
+                MavenExecutionRequest request = session.getRequest();
+                request.setExecutionListener(new ClosingListener(request.getExecutionListener(), created));
+                hooks = created;
+                break;
+            }
+        }
+        synchronized (hooks) {
+            if (hooks.done) {
+                return false;
+            }
+            hooks.hooks.add(hook);
+            hooks.logs.add(log);
+        }
+        return true;
+    }
+
+    private void run() {
+        Runnable[] hooks;
+        Log[] logs;
+        synchronized (this) {
+            done = true;
+            hooks = this.hooks.toArray(Runnable[]::new);
+            logs = this.logs.toArray(Log[]::new);
+            this.hooks.clear();
+            this.logs.clear();
+        }
+        // Later hooks may still depend on what earlier hooks provide, e.g. class loaders
+        for (int i = hooks.length - 1; i >= 0; i--) {
+            try {
+                hooks[i].run();
+            } catch (RuntimeException | LinkageError e) {
+                logs[i].warn("Failed to run session end hook", e);
+            }
+        }
+    }
+
+    private static final class ClosingListener implements ExecutionListener {
+
+        private final ExecutionListener delegate;
+        private final SessionHooks hooks;
+
+        private ClosingListener(final ExecutionListener delegate, final SessionHooks hooks) {
+            this.delegate = delegate;
+            this.hooks = hooks;
+        }
+
+        @Override
+        public void sessionEnded(final ExecutionEvent event) {
+            try {
+                if (delegate != null) {
+                    delegate.sessionEnded(event);
+                }
+            } finally {
+                hooks.run();
+            }
+        }
+
+        @Override
+        public void projectDiscoveryStarted(final ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.projectDiscoveryStarted(event);
+            }
+        }
+
+        @Override
+        public void sessionStarted(final ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.sessionStarted(event);
+            }
+        }
+
+        @Override
+        public void projectSkipped(final ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.projectSkipped(event);
+            }
+        }
+
+        @Override
+        public void projectStarted(final ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.projectStarted(event);
+            }
+        }
+
+        @Override
+        public void projectSucceeded(final ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.projectSucceeded(event);
+            }
+        }
+
+        @Override
+        public void projectFailed(final ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.projectFailed(event);
+            }
+        }
+
+        @Override
+        public void mojoSkipped(final ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.mojoSkipped(event);
+            }
+        }
+
+        @Override
+        public void mojoStarted(final ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.mojoStarted(event);
+            }
+        }
+
+        @Override
+        public void mojoSucceeded(final ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.mojoSucceeded(event);
+            }
+        }
+
+        @Override
+        public void mojoFailed(final ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.mojoFailed(event);
+            }
+        }
+
+        @Override
+        public void forkStarted(final ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.forkStarted(event);
+            }
+        }
+
+        @Override
+        public void forkSucceeded(final ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.forkSucceeded(event);
+            }
+        }
+
+        @Override
+        public void forkFailed(final ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.forkFailed(event);
+            }
+        }
+
+        @Override
+        public void forkedProjectStarted(final ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.forkedProjectStarted(event);
+            }
+        }
+
+        @Override
+        public void forkedProjectSucceeded(final ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.forkedProjectSucceeded(event);
+            }
+        }
+
+        @Override
+        public void forkedProjectFailed(final ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.forkedProjectFailed(event);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,63 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.io.File;
+import java.lang.ref.SoftReference;
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.SessionData;
+import org.jboss.forge.roaster._shade.org.eclipse.jdt.core.dom.ASTNode;
+import org.jboss.forge.roaster.model.source.JavaSource;
+
+final class SessionSourceCache {
+
+    private final ConcurrentHashMap<String, SoftReference<JavaSource<?>>> sources = new ConcurrentHashMap<>();
+
+    public static SessionSourceCache get(final MavenSession session) {
+        if (session == null || session.getRepositorySession() == null) {
+            return null;
+        }
+        SessionData data = session.getRepositorySession().getData();
+        // The class itself is the key so that plugin realms never see each others instances
+        Object key = SessionSourceCache.class;
+        while (true) {
+            Object cache = data.get(key);
+            if (cache != null) {
+                return (SessionSourceCache) cache;
+            }
+            SessionSourceCache created = new SessionSourceCache();
+            if (data.set(key, null, created)) {
+                return created;
+            }
+        }
+    }
+
+    public JavaSource<?> take(final File file, final String hash, final Charset charset) {
+        SoftReference<JavaSource<?>> reference = sources.remove(key(file, hash, charset));
+        return reference == null ? null : reference.get();
+    }
+
+    public boolean offer(final File file, final String hash, final Charset charset, final JavaSource<?> source, final long baseline) {
+        if (baseline < 0 || modificationCount(source) != baseline) {
+            return false;
+        }
+        sources.put(key(file, hash, charset), new SoftReference<>(source));
+        return true;
+    }
+
+    public static long modificationCount(final JavaSource<?> source) {
+        try {
+            if (source.getInternal() instanceof ASTNode node) {
+                return node.getAST().modificationCount();
+            }
+        } catch (RuntimeException | LinkageError e) {
+        }
+        return -1;
+    }
+
+    private static String key(final File file, final String hash, final Charset charset) {
+        return charset.name() + '|' + hash + '|' + file.getAbsolutePath();
+    }
+
+}
@@ -1,58 +1,128 @@
 package me.lauriichan.maven.sourcemod;
 
-import java.io.File;
 import java.util.Set;
 
-import org.codehaus.plexus.util.SelectorUtils;
-
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 
 public final class SimpleFilter {
 
-    private final String[] includes;
-    private final String[] excludes;
+    private static final WildcardPattern[] EMPTY = new WildcardPattern[0];
+
+    private static final class PatternSet {
+
+        private final WildcardPattern[] all;
+        private final WildcardPattern[] unkeyed;
+        private final Object2ObjectOpenHashMap<String, WildcardPattern[]> keyed = new Object2ObjectOpenHashMap<>();
+
+        private PatternSet(final Set<String> filters) {
+            ObjectArrayList<WildcardPattern> all = new ObjectArrayList<>();
+            ObjectArrayList<WildcardPattern> unkeyed = new ObjectArrayList<>();
+            Object2ObjectOpenHashMap<String, ObjectArrayList<WildcardPattern>> keyed = new Object2ObjectOpenHashMap<>();
+            if (filters != null) {
+                for (String filter : filters) {
+                    if (filter == null) {
+                        continue;
+                    }
+                    filter = normalize(filter);
+                    if (filter.endsWith("/")) {
+                        filter += "**";
+                    }
+                    WildcardPattern pattern = new WildcardPattern(filter);
+                    all.add(pattern);
+                    int idx = pattern.literalPrefix().indexOf('/');
+                    if (idx == -1) {
+                        unkeyed.add(pattern);
+                        continue;
+                    }
+                    keyed.computeIfAbsent(pattern.literalPrefix().substring(0, idx), ignore -> new ObjectArrayList<>()).add(pattern);
+                }
+            }
+            this.all = all.toArray(EMPTY);
+            this.unkeyed = unkeyed.toArray(EMPTY);
+            keyed.forEach((key, list) -> this.keyed.put(key, list.toArray(EMPTY)));
+        }
+
+        private boolean isEmpty() {
+            return all.length == 0;
+        }
+
+        private boolean matches(final String path) {
+            if (all.length == 0) {
+                return false;
+            }
+            for (WildcardPattern pattern : unkeyed) {
+                if (pattern.matches(path)) {
+                    return true;
+                }
+            }
+            if (keyed.isEmpty()) {
+                return false;
+            }
+            int idx = path.indexOf('/');
+            if (idx == -1) {
+                return false;
+            }
+            WildcardPattern[] patterns = keyed.get(path.substring(0, idx));
+            if (patterns == null) {
+                return false;
+            }
+            for (WildcardPattern pattern : patterns) {
+                if (pattern.matches(path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean canMatchUnder(final String directory) {
+            for (WildcardPattern pattern : all) {
+                if (pattern.canMatchUnder(directory)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean matchesEverythingUnder(final String directory) {
+            for (WildcardPattern pattern : all) {
+                if (pattern.matchesEverythingUnder(directory)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+    private final PatternSet includes;
+    private final PatternSet excludes;
     private final boolean excludeByDefault;
 
     public SimpleFilter(Set<String> includes, Set<String> excludes, boolean excludeByDefault) {
-        this.includes = normalize(includes);
-        this.excludes = normalize(excludes);
+        this.includes = new PatternSet(includes);
+        this.excludes = new PatternSet(excludes);
         this.excludeByDefault = excludeByDefault;
     }
-    
+
     public boolean isFiltered(String path) {
         path = normalize(path);
-        return (excludeByDefault && !matches(path, includes)) || matches(path, excludes);
+        return (excludeByDefault && !includes.matches(path)) || excludes.matches(path);
     }
-    
-    private boolean matches(String path, String[] filters) {
-        if (filters.length == 0) {
-            return false;
+
+    public boolean canMatchUnder(String directory) {
+        directory = normalize(directory);
+        if (!directory.isEmpty() && !directory.endsWith("/")) {
+            directory += '/';
         }
-        for (String filter : filters) {
-            if (SelectorUtils.match(filter, path)) {
-                return true;
-            }
+        if (excludeByDefault && (includes.isEmpty() || !includes.canMatchUnder(directory))) {
+            return false;
         }
-        return false;
+        return !excludes.matchesEverythingUnder(directory);
     }
 
-    private String normalize(String path) {
-        return (path != null) ? path.replace(File.separatorChar == '/' ? '\\' : '/', File.separatorChar) : null;
-    }
-
-    private String[] normalize(Set<String> filters) {
-        if (filters == null || filters.isEmpty()) {
-            return new String[0];
-        }
-        ObjectArrayList<String> list = new ObjectArrayList<>();
-        for (String filter : filters) {
-            filter = normalize(filter);
-            if (filter.endsWith(File.separator)) {
-                filter += "**";
-            }
-            list.add(filter);
-        }
-        return list.toArray(String[]::new);
+    private static String normalize(String path) {
+        return (path != null) ? path.replace('\\', '/') : null;
     }
 
 }
@@ -0,0 +1,64 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.util.Comparator;
+import java.util.Locale;
+
+import org.apache.maven.plugin.logging.Log;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectHeapPriorityQueue;
+
+final class SlowTransforms {
+
+    private static final Comparator<Entry> BY_DURATION = Comparator.comparingLong(entry -> entry.nanos);
+
+    private static final class Entry {
+
+        private final String file, transformer;
+        private final long nanos;
+
+        private Entry(final String file, final String transformer, final long nanos) {
+            this.file = file;
+            this.transformer = transformer;
+            this.nanos = nanos;
+        }
+
+    }
+
+    private final int limit;
+    private final ObjectHeapPriorityQueue<Entry> slowest;
+
+    public SlowTransforms(final int limit) {
+        this.limit = limit;
+        this.slowest = new ObjectHeapPriorityQueue<>(limit, BY_DURATION);
+    }
+
+    public synchronized void record(final String file, final String transformer, final long nanos) {
+        if (slowest.size() < limit) {
+            slowest.enqueue(new Entry(file, transformer, nanos));
+            return;
+        }
+        if (nanos > slowest.first().nanos) {
+            slowest.dequeue();
+            slowest.enqueue(new Entry(file, transformer, nanos));
+        }
+    }
+
+    public void log(final Log log) {
+        ObjectArrayList<Entry> entries = new ObjectArrayList<>(limit);
+        synchronized (this) {
+            while (!slowest.isEmpty()) {
+                entries.add(slowest.dequeue());
+            }
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        log.info("Slowest " + entries.size() + " transformations:");
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            Entry entry = entries.get(i);
+            log.info(String.format(Locale.ROOT, "%10.2f ms  %s  %s", entry.nanos / 1_000_000d, entry.transformer, entry.file));
+        }
+    }
+
+}
@@ -0,0 +1,179 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.logging.Log;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+final class SourceCopier implements AutoCloseable {
+
+    private final CopyStrategy strategy;
+    private final Log log;
+    private final ExecutorService executor;
+    private final ObjectArrayList<Future<?>> pending = new ObjectArrayList<>();
+    private final AtomicBoolean linkFallback = new AtomicBoolean();
+    private final PipelineTimings timings;
+
+    public SourceCopier(final CopyStrategy strategy, final int threads, final Log log, final PipelineTimings timings) {
+        this.strategy = strategy == null ? CopyStrategy.ALWAYS : strategy;
+        this.log = log;
+        this.timings = timings;
+        if (threads <= 1) {
+            this.executor = null;
+            return;
+        }
+        AtomicInteger threadId = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "SourceCopy-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void copy(final Path source, final Path target) throws IOException {
+        if (executor == null) {
+            copyNow(source, target);
+            return;
+        }
+        Future<?> future = executor.submit(() -> {
+            copyNow(source, target);
+            return null;
+        });
+        synchronized (pending) {
+            pending.add(future);
+        }
+    }
+
+    public void finish() throws IOException {
+        if (executor == null) {
+            return;
+        }
+        Future<?>[] futures;
+        synchronized (pending) {
+            futures = pending.toArray(Future<?>[]::new);
+            pending.clear();
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for source copies", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException exception) {
+                    throw exception;
+                }
+                throw new IOException(e.getCause().getMessage(), e.getCause());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void copyNow(final Path source, final Path target) throws IOException {
+        long start = timings.now();
+        try {
+            copyWithStrategy(source, target);
+        } finally {
+            timings.record("copy", start);
+        }
+    }
+
+    private void copyWithStrategy(final Path source, final Path target) throws IOException {
+        switch (strategy) {
+        case METADATA:
+            if (Files.isRegularFile(target, LinkOption.NOFOLLOW_LINKS) && Files.size(source) == Files.size(target)
+                && Files.getLastModifiedTime(source).equals(Files.getLastModifiedTime(target, LinkOption.NOFOLLOW_LINKS))) {
+                return;
+            }
+            copyFile(source, target, true);
+            return;
+        case HASH:
+            if (Files.isRegularFile(target, LinkOption.NOFOLLOW_LINKS) && Files.size(source) == Files.size(target)
+                && Arrays.equals(Files.readAllBytes(source), Files.readAllBytes(target))) {
+                return;
+            }
+            copyFile(source, target, true);
+            return;
+        case HARDLINK:
+            if (Files.exists(target, LinkOption.NOFOLLOW_LINKS) && Files.isSameFile(source, target)) {
+                return;
+            }
+            prepare(target);
+            try {
+                Files.createLink(target, source);
+            } catch (UnsupportedOperationException | IOException e) {
+                try {
+                    Files.createSymbolicLink(target, source.toAbsolutePath());
+                } catch (UnsupportedOperationException | IOException e1) {
+                    e.addSuppressed(e1);
+                    fallback(source, target, e);
+                }
+            }
+            return;
+        case SYMLINK:
+            Path absolute = source.toAbsolutePath();
+            if (Files.isSymbolicLink(target) && absolute.equals(Files.readSymbolicLink(target))) {
+                return;
+            }
+            prepare(target);
+            try {
+                Files.createSymbolicLink(target, absolute);
+            } catch (UnsupportedOperationException | IOException e) {
+                fallback(source, target, e);
+            }
+            return;
+        default:
+            copyFile(source, target, false);
+        }
+    }
+
+    private void fallback(final Path source, final Path target, final Exception exception) throws IOException {
+        if (linkFallback.compareAndSet(false, true)) {
+            log.warn("Couldn't create " + strategy.name().toLowerCase() + " for '" + target + "', falling back to copying ("
+                + exception.getMessage() + ")");
+        }
+        copyFile(source, target, true);
+    }
+
+    private void prepare(final Path target) throws IOException {
+        Path parent = target.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.deleteIfExists(target);
+    }
+
+    private void copyFile(final Path source, final Path target, final boolean keepAttributes) throws IOException {
+        Path parent = target.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        if (keepAttributes) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        } else {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (timings.isEnabled()) {
+            timings.written(Files.size(target));
+        }
+    }
+
+}
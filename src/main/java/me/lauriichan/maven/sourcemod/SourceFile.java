@@ -6,10 +6,18 @@ final class SourceFile {
     
     private final File file;
     private final String relativePath;
+    private final long size;
+    private final long lastModified;
     
     public SourceFile(final File file, final String relativePath) {
+        this(file, relativePath, file.length(), file.lastModified());
+    }
+    
+    public SourceFile(final File file, final String relativePath, final long size, final long lastModified) {
         this.file = file;
         this.relativePath = relativePath;
+        this.size = size;
+        this.lastModified = lastModified;
     }
     
     public File file() {
@@ -19,5 +27,13 @@ final class SourceFile {
     public String relativePath() {
         return relativePath;
     }
+    
+    public long size() {
+        return size;
+    }
+    
+    public long lastModified() {
+        return lastModified;
+    }
 
 }
@@ -1,22 +1,23 @@
 package me.lauriichan.maven.sourcemod;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.lang.invoke.MethodHandle;
-import java.lang.invoke.MethodHandles;
-import java.lang.invoke.MethodType;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
 
 import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -24,12 +25,11 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
-import org.jboss.forge.roaster.Roaster;
 import org.jboss.forge.roaster.model.source.JavaSource;
 
-import it.unimi.dsi.fastutil.objects.ObjectArrayFIFOQueue;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import me.lauriichan.maven.sourcemod.api.ISourceGenerator;
+import me.lauriichan.maven.sourcemod.api.SourceBatch;
 
 @Mojo(name = "generateSource", defaultPhase = LifecyclePhase.GENERATE_SOURCES, threadSafe = true, requiresDependencyResolution = ResolutionScope.COMPILE)
 public class SourceGenerationMojo extends AbstractMojo {
@@ -61,82 +61,320 @@ public class SourceGenerationMojo extends AbstractMojo {
     @Parameter(property = "sourcegeneration.skip")
     private boolean skip = false;
 
+    @Parameter(property = "sourcegeneration.incremental", defaultValue = "true")
+    private boolean incremental = true;
+
+    @Parameter(property = "sourcegeneration.metadataCache", defaultValue = "true")
+    private boolean metadataCache = true;
+
+    @Parameter(property = "sourcegeneration.sessionCache", defaultValue = "true")
+    private boolean sessionCache = true;
+
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    private MavenSession session;
+
+    @Parameter(property = "sourcegeneration.classLoaderCache", defaultValue = "true")
+    private boolean classLoaderCache = true;
+
+    @Parameter(property = "sourcegeneration.reuseInstances", defaultValue = "true")
+    private boolean reuseInstances = true;
+
+    @Parameter(property = "sourcegeneration.timings", defaultValue = "false")
+    private boolean timings = false;
+
+    @Parameter(property = "sourcegeneration.maxResidentSources", defaultValue = "0")
+    private int maxResidentSources = 0;
+
+    @Parameter(property = "sourcegeneration.writeThreads", defaultValue = "1")
+    private int writeThreads = 1;
+
+    @Parameter(property = "sourcegeneration.generatorThreads", defaultValue = "1")
+    private int generatorThreads = 1;
+
+    @Parameter(property = "sourcegeneration.encoding", defaultValue = "${project.build.sourceEncoding}")
+    private String encoding;
+
+    @Parameter(defaultValue = "${mojoExecution}", required = true, readonly = true)
+    private MojoExecution mojoExecution;
+
+    private final ConcurrentHashMap<String, SourceManifest.Entry> pendingEntries = new ConcurrentHashMap<>();
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
+        PipelineTimings timings = this.timings ? new PipelineTimings() : PipelineTimings.DISABLED;
+        long start = timings.now();
         List<SourceFile> sources = findSources();
+        timings.record("scan", start);
         if (sources.isEmpty()) {
             getLog().info("No sources to modify");
             return;
         }
-        final ClassLoader originalLoader = Thread.currentThread().getContextClassLoader();
-        try {
-            updateClassLoader();
-            List<ISourceGenerator> generators = findTransformers();
+        try (ExecutionClassLoader classLoader = createClassLoader();
+            LifecycleRun lifecycle = new LifecycleRun(reuseInstances ? InstanceCache.get(session, getLog()) : null, classLoader)) {
+            List<ISourceGenerator> generators = findTransformers(classLoader, lifecycle);
+            if (lifecycle.cache() != null) {
+                getLog().debug("Instance cache has " + lifecycle.cache().hits() + " hits and " + lifecycle.cache().misses()
+                    + " misses in this session");
+            }
+            lifecycle.begin(new SourceBatch(project.getId(), mojoExecution.getExecutionId(), outputDirectory, sources.size()));
             if (generators.isEmpty()) {
                 getLog().info("No source generators found");
                 return;
             }
-            ObjectArrayList<JavaSource<?>> sourceList = new ObjectArrayList<>();
-            for (SourceFile source : sources) {
-                sourceList.add(Roaster.parse(JavaSource.class, source.file()));
+            GeneratorGraph graph = GeneratorGraph.of(this.generators, generators);
+            Charset charset = SourceOutput.charset(encoding, getLog());
+            String executionId = mojoExecution.getExecutionId();
+            File cacheFile = new File(outputDirectory, ".sourcegeneration-" + executionId + "-metadata");
+            MetadataCache cache = metadataCache ? MetadataCache.load(cacheFile) : null;
+            SessionSourceCache sharedSources = sessionCache ? SessionSourceCache.get(session) : null;
+            ResidentSources resident = maxResidentSources > 0 ? new ResidentSources(maxResidentSources) : null;
+            LazySource.Context context = new LazySource.Context(charset, sharedSources, resident, timings);
+            String[] hashes = new String[sources.size()];
+            ObjectArrayList<LazySource> sourceList = new ObjectArrayList<>(sources.size());
+            int cacheHits = 0;
+            for (int i = 0; i < hashes.length; i++) {
+                SourceFile source = sources.get(i);
+                start = timings.now();
+                byte[] content = Files.readAllBytes(source.file().toPath());
+                timings.record("read", start);
+                timings.read(content.length);
+                hashes[i] = Hashing.hash(content);
+                SourceMetadata metadata = cache == null ? null : cache.get(source.relativePath(), hashes[i]);
+                if (metadata != null) {
+                    cacheHits++;
+                    sourceList.add(LazySource.of(source.file(), hashes[i], metadata, context));
+                } else {
+                    sourceList.add(LazySource.of(source.file(), hashes[i], new RawSource(content, charset).header(), context));
+                }
             }
-            SourcePackageImpl pkgImpl = new SourcePackageImpl(sourceList);
-            for (ISourceGenerator generator : generators) {
-                generator.generateSources(pkgImpl);
+            File stateFile = new File(outputDirectory, ".sourcegeneration-" + executionId + "-state");
+            SourceManifest previous = null, state = null;
+            if (incremental) {
+                state = new SourceManifest(createFingerprint(sources, hashes, generators, classLoader, charset));
+                previous = SourceManifest.load(stateFile);
+                if (previous != null && previous.fingerprint().equals(state.fingerprint()) && outputsExist(previous)) {
+                    getLog().info("Generated sources are up-to-date");
+                    return;
+                }
             }
-            String pkg;
-            File outputFile;
-            for (JavaSource<?> source : pkgImpl.generatedSources()) {
-                if ((pkg = source.getPackage()) == null || pkg.isBlank()) {
-                    outputFile = new File(outputDirectory, source.getName() + ".java");
-                    pkg = "";
-                } else {
-                    outputFile = new File(outputDirectory, pkg.replace('.', '/') + '/' + source.getName() + ".java");
-                    pkg = pkg + '.';
+            // The state only describes outputs of a run that completed, a failed run must not leave an older one behind
+            if (stateFile.exists()) {
+                stateFile.delete();
+            }
+            SourceManifest generatedState = state;
+            try (OutputWriter writer = new OutputWriter(writeThreads, "SourceGenerationWrite", timings)) {
+                SourcePackageImpl pkgImpl = new SourcePackageImpl(sourceList,
+                    source -> finishSource(writer, source, generatedState, charset, timings));
+                graph.run(pkgImpl, generatorThreads, classLoader.loader(), timings);
+                List<String> modified = pkgImpl.modifiedFinishedSources();
+                if (!modified.isEmpty()) {
+                    throw new MojoExecutionException("Generated source(s) " + modified + " were changed after being finished");
+                }
+                getLog().debug("Parsed " + pkgImpl.parsedSources() + " of " + pkgImpl.totalSources() + " sources");
+                if (resident != null) {
+                    getLog().info("Peak of " + resident.peak() + " resident parsed sources (limit " + resident.limit() + "), "
+                        + resident.evicted() + " evicted, " + resident.reparsed() + " parsed again");
+                }
+                if (cache != null) {
+                    getLog().debug("Served metadata of " + cacheHits + " of " + sources.size() + " sources from cache");
+                    saveMetadata(cacheFile, sources, hashes, sourceList);
+                } else if (cacheFile.exists()) {
+                    cacheFile.delete();
                 }
-                getLog().info("Generated class '" + pkg + source.getName() + "'");
-                try {
-                    createFile(outputFile);
-                    FileWriter writer = new FileWriter(outputFile);
-                    writer.write(source.toString());
-                    writer.flush();
-                    writer.close();
-                } catch(IOException e) {
-                    getLog().error("Failed to save class '" + pkg + source.getName() + "' to file.", e);
+                for (JavaSource<?> source : pkgImpl.generatedSources()) {
+                    writeSource(writer, source, generatedState, () -> serialize(source, charset, timings));
                 }
+                int failures = writer.finish(new OutputWriter.Listener() {
+                    @Override
+                    public void written(String name, boolean changed) {
+                        SourceManifest.Entry entry = pendingEntries.remove(name);
+                        if (entry != null) {
+                            generatedState.put(entry.output(), entry);
+                        }
+                        if (changed) {
+                            getLog().info("Generated class '" + name + "'");
+                        } else {
+                            getLog().info("Generated class '" + name + "' is unchanged");
+                        }
+                    }
+
+                    @Override
+                    public void failed(String name, Throwable error) {
+                        getLog().error("Failed to save class '" + name + "' to file.", error);
+                    }
+                });
+                if (failures != 0) {
+                    throw new MojoExecutionException("Failed to write " + failures + " generated source file(s)");
+                }
+            }
+            if (sharedSources != null) {
+                shareSources(sourceList);
+            }
+            if (state != null) {
+                deleteStaleOutputs(previous, state);
+                state.save(stateFile);
             }
         } catch (Exception e) {
             getLog().error(e);
             throw new MojoExecutionException(e.getMessage(), e);
         } finally {
-            Thread.currentThread().setContextClassLoader(originalLoader);
+            reportTimings(timings);
+        }
+    }
+
+    private void reportTimings(PipelineTimings timings) {
+        if (!timings.isEnabled()) {
+            return;
+        }
+        timings.log(getLog());
+        String executionId = mojoExecution.getExecutionId();
+        File report = new File(project.getBuild().getDirectory(), "sourcegeneration-" + executionId + "-timings.json");
+        try {
+            timings.write(report, "generateSource", executionId);
+        } catch (IOException e) {
+            getLog().warn("Failed to write timing report '" + report + "'", e);
+        }
+    }
+
+    private static byte[] serialize(JavaSource<?> source, Charset charset, PipelineTimings timings) {
+        long start = timings.now();
+        byte[] content = source.toString().getBytes(charset);
+        timings.record("serialize", start);
+        return content;
+    }
+
+    private LazySource finishSource(OutputWriter writer, JavaSource<?> source, SourceManifest state, Charset charset,
+        PipelineTimings timings) {
+        byte[] content = serialize(source, charset, timings);
+        try {
+            Future<Boolean> written = writeSource(writer, source, state, () -> content);
+            return LazySource.finished(outputFile(source), written, source, new LazySource.Context(charset, null, null, timings));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to finish source '" + source.getQualifiedName() + "'", e);
+        }
+    }
+
+    private Future<Boolean> writeSource(OutputWriter writer, JavaSource<?> source, SourceManifest state, Callable<byte[]> serializer)
+        throws IOException {
+        String path = outputPath(source);
+        String name = source.getQualifiedName();
+        return writer.write(name, new File(outputDirectory, path).toPath(), () -> {
+            byte[] content = serializer.call();
+            if (state != null) {
+                pendingEntries.put(name, new SourceManifest.Entry(Hashing.hash(content), path));
+            }
+            return content;
+        });
+    }
+
+    private File outputFile(JavaSource<?> source) {
+        return new File(outputDirectory, outputPath(source));
+    }
+
+    private String outputPath(JavaSource<?> source) {
+        String pkg = source.getPackage();
+        if (pkg == null || pkg.isBlank()) {
+            return source.getName() + ".java";
+        }
+        return pkg.replace('.', '/') + '/' + source.getName() + ".java";
+    }
+
+    private void shareSources(List<LazySource> sourceList) {
+        int reused = 0, released = 0;
+        for (LazySource source : sourceList) {
+            if (source.isShared()) {
+                reused++;
+            }
+            if (source.isParsed() && source.release()) {
+                released++;
+            }
         }
+        getLog().debug("Reused " + reused + " parsed sources from this session and shared " + released + " with later goals");
     }
 
-    private void updateClassLoader() throws DependencyResolutionRequiredException {
-        ObjectArrayList<URL> urlList = new ObjectArrayList<>();
+    private void saveMetadata(File cacheFile, List<SourceFile> sources, String[] hashes, List<LazySource> sourceList) throws IOException {
+        MetadataCache cache = new MetadataCache();
+        for (int i = 0; i < hashes.length; i++) {
+            SourceMetadata metadata = sourceList.get(i).cachedMetadata();
+            if (metadata != null) {
+                cache.put(sources.get(i).relativePath(), hashes[i], metadata);
+            }
+        }
+        cache.save(cacheFile);
+    }
+
+    private String createFingerprint(List<SourceFile> sources, String[] hashes, List<ISourceGenerator> generators,
+        ExecutionClassLoader classLoader, Charset charset) throws IOException {
+        Fingerprint fingerprint = new Fingerprint().addCodeSource(SourceGenerationMojo.class).add(charset.name());
+        classLoader.addTo(fingerprint, new File(project.getBuild().getOutputDirectory()));
+        fingerprint.add(generators.size());
+        for (int i = 0; i < generators.size(); i++) {
+            SourceGeneratorConfiguration configuration = this.generators[i];
+            fingerprint.add(configuration.getClassName()).add(configuration.getProperties()).add(configuration.getId());
+            fingerprint.add(configuration.getDependsOn().size());
+            for (String dependency : configuration.getDependsOn()) {
+                fingerprint.add(dependency);
+            }
+            fingerprint.addCodeSource(generators.get(i).getClass());
+        }
+        Integer[] sorted = new Integer[hashes.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, Comparator.comparing(idx -> sources.get(idx).relativePath()));
+        fingerprint.add(sorted.length);
+        for (int idx : sorted) {
+            fingerprint.add(sources.get(idx).relativePath()).add(hashes[idx]);
+        }
+        return fingerprint.build();
+    }
+
+    private boolean outputsExist(SourceManifest state) {
+        for (SourceManifest.Entry entry : state.entries().values()) {
+            if (!new File(outputDirectory, entry.output()).isFile()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void deleteStaleOutputs(SourceManifest previous, SourceManifest state) {
+        if (previous == null) {
+            return;
+        }
+        for (SourceManifest.Entry entry : previous.entries().values()) {
+            if (state.get(entry.output()) != null) {
+                continue;
+            }
+            File output = new File(outputDirectory, entry.output());
+            if (output.isFile()) {
+                getLog().info("Deleting stale output '" + entry.output() + "'");
+                output.delete();
+            }
+        }
+    }
+
+    private ExecutionClassLoader createClassLoader() throws DependencyResolutionRequiredException, IOException {
+        ObjectArrayList<File> fileList = new ObjectArrayList<>();
         for (final String runtimeResource : project.getRuntimeClasspathElements()) {
-            urlList.add(resolveUrl(runtimeResource));
+            fileList.add(new File(runtimeResource));
         }
         if (classPath != null && !classPath.isEmpty()) {
             for (String path : classPath) {
-                urlList.add(resolveUrl(path));
+                fileList.add(new File(path));
             }
         }
-        if (urlList.isEmpty()) {
-            return;
-        }
-        Thread thread = Thread.currentThread();
-        thread.setContextClassLoader(URLClassLoader.newInstance(urlList.toArray(URL[]::new), thread.getContextClassLoader()));
+        ClassLoaderCache cache = classLoaderCache ? ClassLoaderCache.get(session, getLog()) : null;
+        return ExecutionClassLoader.create(fileList, SourceGenerationMojo.class.getClassLoader(), cache, getLog());
     }
 
-    private List<ISourceGenerator> findTransformers() throws MojoExecutionException {
+    private List<ISourceGenerator> findTransformers(ExecutionClassLoader executionLoader, LifecycleRun lifecycle)
+        throws MojoExecutionException {
         if (this.generators == null || this.generators.length == 0) {
             return Collections.emptyList();
         }
-        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        ClassLoader classLoader = executionLoader.loader();
         ObjectArrayList<ISourceGenerator> generators = new ObjectArrayList<>();
-        MethodHandles.Lookup lookup = MethodHandles.lookup();
         for (SourceGeneratorConfiguration configuration : this.generators) {
             Class<?> clazz;
             try {
@@ -150,22 +388,7 @@ public class SourceGenerationMojo extends AbstractMojo {
             }
             Class<? extends ISourceGenerator> generatorClass = clazz.asSubclass(ISourceGenerator.class);
             try {
-                MethodHandles.Lookup privateLookup = MethodHandles.privateLookupIn(generatorClass, lookup);
-                MethodHandle handle;
-                boolean withProperties = true;
-                try {
-                    handle = privateLookup.findConstructor(clazz, MethodType.methodType(void.class, Properties.class));
-                } catch (NoSuchMethodException e0) {
-                    handle = privateLookup.findConstructor(clazz, MethodType.methodType(void.class));
-                    withProperties = false;
-                }
-                ISourceGenerator instance;
-                if (withProperties) {
-                    instance = generatorClass.cast(handle.invoke(configuration.getProperties()));
-                } else {
-                    instance = generatorClass.cast(handle.invoke());
-                }
-                generators.add(instance);
+                generators.add(lifecycle.create(generatorClass, configuration.getProperties()));
             } catch (Throwable e) {
                 throw new MojoExecutionException("Couldn't create instance of generator '" + configuration.getClassName() + "'", e);
             }
@@ -174,62 +397,7 @@ public class SourceGenerationMojo extends AbstractMojo {
     }
 
     private List<SourceFile> findSources() {
-        if (sourceDirectories == null || sourceDirectories.isEmpty()) {
-            return Collections.emptyList();
-        }
-        ObjectArrayList<SourceFile> files = new ObjectArrayList<>();
-        ObjectArrayFIFOQueue<File> queue = new ObjectArrayFIFOQueue<>();
-        SimpleFilter filter = new SimpleFilter(includes, excludes, excludeByDefault);
-        File file;
-        File[] fileArray;
-        String path;
-        for (String root : sourceDirectories) {
-            file = new File(root);
-            if (!file.exists() || !file.isDirectory()) {
-                continue;
-            }
-            int rootLength = file.getAbsolutePath().length() + 1;
-            queue.enqueue(file);
-            while (!queue.isEmpty()) {
-                file = queue.dequeue();
-                fileArray = file.listFiles();
-                if (fileArray == null || fileArray.length == 0) {
-                    continue;
-                }
-                for (File current : fileArray) {
-                    if (current.isDirectory()) {
-                        queue.enqueue(current);
-                        continue;
-                    }
-                    path = current.getAbsolutePath().substring(rootLength).replace('\\', '/');
-                    if (filter.isFiltered(path)) {
-                        continue;
-                    }
-                    files.add(new SourceFile(current, path));
-                }
-            }
-        }
-        return files;
-    }
-
-    private void createFile(File file) throws IOException {
-        if (!file.exists()) {
-            File parent;
-            if ((parent = file.getParentFile()) != null && !parent.exists()) {
-                parent.mkdirs();
-            }
-        } else {
-            file.delete();
-        }
-        file.createNewFile();
-    }
-
-    private URL resolveUrl(final String resource) {
-        try {
-            return new File(resource).toURI().toURL();
-        } catch (final MalformedURLException e) {
-            throw new RuntimeException(e.getMessage(), e);
-        }
+        return SourceScanner.scan(sourceDirectories, new SimpleFilter(includes, excludes, excludeByDefault));
     }
 
 }
@@ -1,9 +1,12 @@
 package me.lauriichan.maven.sourcemod;
 
+import java.util.List;
 import java.util.Properties;
 
 import org.apache.maven.plugins.annotations.Parameter;
 
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
 public final class SourceGeneratorConfiguration {
 
     @Parameter(property = "className", required = true)
@@ -12,6 +15,12 @@ public final class SourceGeneratorConfiguration {
     @Parameter(property = "properties", required = false)
     private Properties properties;
 
+    @Parameter(property = "id", required = false)
+    private String id;
+
+    @Parameter(property = "dependsOn", required = false)
+    private List<String> dependsOn;
+
     public String getClassName() {
         if (className == null) {
             return "";
@@ -33,5 +42,31 @@ public final class SourceGeneratorConfiguration {
     public void setProperties(final Properties properties) {
         this.properties = properties == null ? new Properties() : (Properties) properties.clone();
     }
+
+    public String getId() {
+        if (id == null || id.isBlank()) {
+            return getClassName();
+        }
+        return id;
+    }
+
+    public boolean hasId() {
+        return id != null && !id.isBlank();
+    }
+
+    public void setId(final String id) {
+        this.id = id;
+    }
+
+    public List<String> getDependsOn() {
+        if (dependsOn == null) {
+            return dependsOn = new ObjectArrayList<>();
+        }
+        return dependsOn;
+    }
+
+    public void setDependsOn(final List<String> dependsOn) {
+        this.dependsOn = dependsOn == null ? new ObjectArrayList<>() : new ObjectArrayList<>(dependsOn);
+    }
     
 }
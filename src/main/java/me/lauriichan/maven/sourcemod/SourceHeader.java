@@ -0,0 +1,398 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectLists;
+import me.lauriichan.maven.sourcemod.api.SourceKind;
+
+final class SourceHeader {
+
+    private static final String UTF8_BOM = "\u00EF\u00BB\u00BF";
+
+    private final String packageName;
+    private final String typeName;
+    private final SourceKind kind;
+    private final List<String> annotations;
+    private final List<String> imports;
+
+    private SourceHeader(final String packageName, final String typeName, final SourceKind kind, final List<String> annotations,
+        final List<String> imports, final Charset charset) {
+        this.packageName = decode(packageName, charset);
+        this.typeName = decode(typeName, charset);
+        this.kind = kind;
+        this.annotations = annotations;
+        this.imports = imports;
+    }
+
+    public String packageName() {
+        return packageName;
+    }
+
+    public String typeName() {
+        return typeName;
+    }
+
+    public SourceKind kind() {
+        return kind;
+    }
+
+    public List<String> annotations() {
+        return annotations;
+    }
+
+    public List<String> imports() {
+        return imports;
+    }
+
+    public boolean hasType() {
+        return typeName != null;
+    }
+
+    public String resolve(final String name) {
+        // Only the first segment can refer to an import, e.g. 'Outer.Inner' with 'import x.Outer;'
+        int dot = name.indexOf('.');
+        String suffix = '.' + (dot == -1 ? name : name.substring(0, dot));
+        for (String type : imports) {
+            if (type.endsWith(suffix)) {
+                return dot == -1 ? type : type + name.substring(dot);
+            }
+        }
+        return null;
+    }
+
+    public static SourceHeader scan(String text, final Charset charset) {
+        if (text.indexOf("\\u") != -1) {
+            text = translateEscapes(text, charset);
+        }
+        Lexer lexer = new Lexer(text, text.startsWith(UTF8_BOM) ? UTF8_BOM.length() : 0);
+        String packageName = "";
+        ObjectArrayList<String> imports = new ObjectArrayList<>();
+        ObjectArrayList<String> annotations = new ObjectArrayList<>();
+        String word;
+        while ((word = lexer.peekWord()) != null) {
+            if (lexer.peek() == '@' && !lexer.isAnnotationDeclaration()) {
+                lexer.skipAnnotation(annotations);
+                continue;
+            }
+            if (word.equals("package")) {
+                lexer.skipWord();
+                packageName = lexer.readName();
+                lexer.skipStatement();
+                annotations.clear();
+                continue;
+            }
+            if (word.equals("import")) {
+                lexer.skipWord();
+                boolean isStatic = "static".equals(lexer.peekWord());
+                if (isStatic) {
+                    lexer.skipWord();
+                }
+                String name = lexer.readName();
+                if (!isStatic && !name.isEmpty() && lexer.peek() != '*') {
+                    imports.add(name);
+                }
+                lexer.skipStatement();
+                continue;
+            }
+            break;
+        }
+        String typeName = null;
+        SourceKind kind = null;
+        while (!lexer.isDone()) {
+            if (lexer.peek() == ';') {
+                lexer.skip(1);
+                continue;
+            }
+            while ((word = lexer.peekWord()) != null) {
+                if (lexer.peek() == '@') {
+                    if (!lexer.isAnnotationDeclaration()) {
+                        lexer.skipAnnotation(annotations);
+                        continue;
+                    }
+                    lexer.skip(1);
+                    lexer.skipWord();
+                    kind = SourceKind.ANNOTATION;
+                    break;
+                }
+                lexer.skipWord();
+                if (word.equals("class")) {
+                    kind = SourceKind.CLASS;
+                    break;
+                } else if (word.equals("interface")) {
+                    kind = SourceKind.INTERFACE;
+                    break;
+                } else if (word.equals("enum")) {
+                    kind = SourceKind.ENUM;
+                    break;
+                } else if (word.equals("record") && isIdentifierPart(lexer.peek())) {
+                    kind = SourceKind.RECORD;
+                    break;
+                } else if (word.equals("non")) {
+                    lexer.skipSealedSuffix();
+                }
+            }
+            if (kind != null) {
+                typeName = lexer.readIdentifier();
+                if (typeName.isEmpty()) {
+                    typeName = null;
+                    kind = null;
+                }
+            }
+            break;
+        }
+        return new SourceHeader(packageName, typeName, kind,
+            typeName == null ? ObjectLists.emptyList() : decode(annotations, charset), decode(imports, charset), charset);
+    }
+
+    private static String translateEscapes(final String text, final Charset charset) {
+        // Unicode escapes are translated before the java lexer runs, they are written back as latin-1 views of the encoded bytes
+        StringBuilder builder = new StringBuilder(text.length());
+        int backslashes = 0;
+        for (int idx = 0; idx < text.length(); idx++) {
+            char ch = text.charAt(idx);
+            if (ch != '\\' || (backslashes & 1) != 0 || idx + 1 >= text.length() || text.charAt(idx + 1) != 'u') {
+                backslashes = ch == '\\' ? backslashes + 1 : 0;
+                builder.append(ch);
+                continue;
+            }
+            int end = idx + 1;
+            while (end < text.length() && text.charAt(end) == 'u') {
+                end++;
+            }
+            int value = end + 4 <= text.length() ? parseHex(text, end) : -1;
+            if (value == -1) {
+                backslashes = 1;
+                builder.append(ch);
+                continue;
+            }
+            builder.append(new String(String.valueOf((char) value).getBytes(charset), StandardCharsets.ISO_8859_1));
+            backslashes = 0;
+            idx = end + 3;
+        }
+        return builder.toString();
+    }
+
+    private static int parseHex(final String text, final int start) {
+        int value = 0;
+        for (int idx = start; idx < start + 4; idx++) {
+            int digit = Character.digit(text.charAt(idx), 16);
+            if (digit == -1) {
+                return -1;
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    private static boolean isIdentifierPart(final char ch) {
+        // Non-ASCII bytes show up as latin-1 characters above 0x7F
+        return ch >= 0x80 || Character.isJavaIdentifierPart(ch);
+    }
+
+    private static List<String> decode(final ObjectArrayList<String> names, final Charset charset) {
+        for (int i = 0; i < names.size(); i++) {
+            names.set(i, decode(names.get(i), charset));
+        }
+        return ObjectLists.unmodifiable(names);
+    }
+
+    private static String decode(final String name, final Charset charset) {
+        if (name == null) {
+            return null;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) >= 0x80) {
+                return new String(name.getBytes(StandardCharsets.ISO_8859_1), charset);
+            }
+        }
+        return name;
+    }
+
+    private static final class Lexer {
+
+        private final String text;
+        private int idx;
+
+        private Lexer(final String text, final int idx) {
+            this.text = text;
+            this.idx = idx;
+            skipIgnored();
+        }
+
+        private boolean isDone() {
+            return idx >= text.length();
+        }
+
+        private char peek() {
+            return idx < text.length() ? text.charAt(idx) : '\0';
+        }
+
+        private void skip(final int amount) {
+            idx += amount;
+            skipIgnored();
+        }
+
+        private String peekWord() {
+            int start = idx;
+            if (start < text.length() && text.charAt(start) == '@') {
+                return "@";
+            }
+            int end = start;
+            while (end < text.length() && isIdentifierPart(text.charAt(end))) {
+                end++;
+            }
+            return end == start ? null : text.substring(start, end);
+        }
+
+        private void skipWord() {
+            while (idx < text.length() && isIdentifierPart(text.charAt(idx))) {
+                idx++;
+            }
+            skipIgnored();
+        }
+
+        private String readIdentifier() {
+            int start = idx;
+            while (idx < text.length() && isIdentifierPart(text.charAt(idx))) {
+                idx++;
+            }
+            String identifier = text.substring(start, idx);
+            skipIgnored();
+            return identifier;
+        }
+
+        private String readName() {
+            StringBuilder builder = new StringBuilder();
+            while (idx < text.length() && isIdentifierPart(text.charAt(idx))) {
+                builder.append(readIdentifier());
+                if (peek() != '.' || (idx + 1 < text.length() && text.charAt(idx + 1) == '.')) {
+                    break;
+                }
+                skip(1);
+                if (!isIdentifierPart(peek())) {
+                    break;
+                }
+                builder.append('.');
+            }
+            return builder.toString();
+        }
+
+        private void skipStatement() {
+            while (idx < text.length() && text.charAt(idx) != ';') {
+                skip(1);
+            }
+            skip(1);
+        }
+
+        private boolean isAnnotationDeclaration() {
+            int next = idx + 1;
+            while (next < text.length() && Character.isWhitespace(text.charAt(next))) {
+                next++;
+            }
+            return text.startsWith("interface", next)
+                && (next + 9 >= text.length() || !isIdentifierPart(text.charAt(next + 9)));
+        }
+
+        private void skipAnnotation(final List<String> annotations) {
+            skip(1);
+            String name = readName();
+            if (!name.isEmpty()) {
+                annotations.add(name);
+            }
+            if (peek() == '(') {
+                skipBalanced('(', ')');
+            }
+        }
+
+        private void skipSealedSuffix() {
+            if (peek() == '-') {
+                skip(1);
+                skipWord();
+            }
+        }
+
+        private void skipBalanced(final char open, final char close) {
+            int depth = 0;
+            while (idx < text.length()) {
+                char ch = text.charAt(idx);
+                if (ch == '"' || ch == '\'') {
+                    skipLiteral();
+                    continue;
+                }
+                if (ch == '/' && idx + 1 < text.length() && (text.charAt(idx + 1) == '/' || text.charAt(idx + 1) == '*')) {
+                    skipIgnored();
+                    continue;
+                }
+                idx++;
+                if (ch == open) {
+                    depth++;
+                } else if (ch == close && --depth == 0) {
+                    break;
+                }
+            }
+            skipIgnored();
+        }
+
+        private void skipLiteral() {
+            char quote = text.charAt(idx);
+            if (quote == '"' && text.startsWith("\"\"\"", idx)) {
+                idx += 3;
+                while (idx < text.length()) {
+                    char ch = text.charAt(idx);
+                    if (ch == '\\') {
+                        idx += 2;
+                        continue;
+                    }
+                    if (text.startsWith("\"\"\"", idx)) {
+                        idx += 3;
+                        break;
+                    }
+                    idx++;
+                }
+                skipIgnored();
+                return;
+            }
+            idx++;
+            while (idx < text.length()) {
+                char ch = text.charAt(idx);
+                if (ch == '\\') {
+                    idx += 2;
+                    continue;
+                }
+                idx++;
+                if (ch == quote || ch == '\n') {
+                    break;
+                }
+            }
+            skipIgnored();
+        }
+
+        private void skipIgnored() {
+            while (idx < text.length()) {
+                char ch = text.charAt(idx);
+                if (Character.isWhitespace(ch)) {
+                    idx++;
+                    continue;
+                }
+                if (ch != '/' || idx + 1 >= text.length()) {
+                    break;
+                }
+                char next = text.charAt(idx + 1);
+                if (next == '/') {
+                    int end = text.indexOf('\n', idx + 2);
+                    idx = end == -1 ? text.length() : end + 1;
+                } else if (next == '*') {
+                    int end = text.indexOf("*/", idx + 2);
+                    idx = end == -1 ? text.length() : end + 2;
+                } else {
+                    break;
+                }
+            }
+        }
+
+    }
+
+}
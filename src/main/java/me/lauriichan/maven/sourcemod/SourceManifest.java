@@ -0,0 +1,110 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class SourceManifest {
+
+    private static final String HEADER = "sourcemodification-manifest 1";
+
+    static final class Entry {
+
+        private final String hash;
+        private final String output;
+
+        public Entry(final String hash, final String output) {
+            this.hash = hash;
+            this.output = output == null ? "" : output;
+        }
+
+        public String hash() {
+            return hash;
+        }
+
+        public String output() {
+            return output;
+        }
+
+        public boolean hasOutput() {
+            return !output.isEmpty();
+        }
+
+    }
+
+    private final String fingerprint;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public SourceManifest(final String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public String fingerprint() {
+        return fingerprint;
+    }
+
+    public Entry get(final String path) {
+        return entries.get(path);
+    }
+
+    public void put(final String path, final Entry entry) {
+        entries.put(path, entry);
+    }
+
+    public Map<String, Entry> entries() {
+        return entries;
+    }
+
+    public static SourceManifest load(final File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) {
+                return null;
+            }
+            String fingerprint = reader.readLine();
+            if (fingerprint == null) {
+                return null;
+            }
+            SourceManifest manifest = new SourceManifest(fingerprint);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", 3);
+                if (parts.length != 3) {
+                    return null;
+                }
+                manifest.entries.put(parts[0], new Entry(parts[1], parts[2]));
+            }
+            return manifest;
+        }
+    }
+
+    public void save(final File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            writer.write(fingerprint);
+            writer.newLine();
+            for (Map.Entry<String, Entry> entry : new TreeMap<>(entries).entrySet()) {
+                writer.write(entry.getKey());
+                writer.write('\t');
+                writer.write(entry.getValue().hash());
+                writer.write('\t');
+                writer.write(entry.getValue().output());
+                writer.newLine();
+            }
+        }
+    }
+
+}
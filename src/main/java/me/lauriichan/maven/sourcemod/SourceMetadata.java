@@ -0,0 +1,141 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+import org.jboss.forge.roaster.model.source.AnnotationSource;
+import org.jboss.forge.roaster.model.source.Import;
+import org.jboss.forge.roaster.model.source.InterfaceCapableSource;
+import org.jboss.forge.roaster.model.source.JavaClassSource;
+import org.jboss.forge.roaster.model.source.JavaSource;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectLists;
+import me.lauriichan.maven.sourcemod.api.SourceKind;
+
+final class SourceMetadata {
+
+    private static final SourceKind[] KINDS = SourceKind.values();
+
+    private final String packageName;
+    private final String name;
+    private final SourceKind kind;
+    private final List<String> annotations;
+    private final List<String> supertypes;
+    private final List<String> imports;
+
+    private SourceMetadata(final String packageName, final String name, final SourceKind kind, final List<String> annotations,
+        final List<String> supertypes, final List<String> imports) {
+        this.packageName = packageName;
+        this.name = name;
+        this.kind = kind;
+        this.annotations = annotations;
+        this.supertypes = supertypes;
+        this.imports = imports;
+    }
+
+    public static SourceMetadata of(final JavaSource<?> source) {
+        ObjectArrayList<String> annotations = new ObjectArrayList<>();
+        for (AnnotationSource<?> annotation : source.getAnnotations()) {
+            annotations.add(annotation.getQualifiedName());
+        }
+        ObjectArrayList<String> supertypes = new ObjectArrayList<>();
+        if (source instanceof JavaClassSource classSource) {
+            addSupertype(supertypes, classSource.getSuperType());
+        }
+        if (source instanceof InterfaceCapableSource<?> interfaceSource) {
+            for (String type : interfaceSource.getInterfaces()) {
+                addSupertype(supertypes, type);
+            }
+        }
+        ObjectArrayList<String> imports = new ObjectArrayList<>();
+        for (Import imported : source.getImports()) {
+            imports.add(imported.isStatic() ? "static " + imported.getQualifiedName() : imported.getQualifiedName());
+        }
+        String pkg = source.getPackage();
+        return new SourceMetadata(pkg == null ? "" : pkg, source.getName(), SourceKind.of(source), ObjectLists.unmodifiable(annotations),
+            ObjectLists.unmodifiable(supertypes), ObjectLists.unmodifiable(imports));
+    }
+
+    private static void addSupertype(final ObjectArrayList<String> supertypes, String type) {
+        if (type == null || type.isEmpty()) {
+            return;
+        }
+        int generic = type.indexOf('<');
+        if (generic != -1) {
+            type = type.substring(0, generic);
+        }
+        if (!type.equals("java.lang.Object")) {
+            supertypes.add(type);
+        }
+    }
+
+    public String packageName() {
+        return packageName;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String qualifiedName() {
+        return packageName.isEmpty() ? name : packageName + '.' + name;
+    }
+
+    public SourceKind kind() {
+        return kind;
+    }
+
+    public List<String> annotations() {
+        return annotations;
+    }
+
+    public List<String> supertypes() {
+        return supertypes;
+    }
+
+    public List<String> imports() {
+        return imports;
+    }
+
+    void write(final DataOutput output) throws IOException {
+        output.writeUTF(packageName);
+        output.writeUTF(name);
+        output.writeByte(kind == null ? -1 : kind.ordinal());
+        writeList(output, annotations);
+        writeList(output, supertypes);
+        writeList(output, imports);
+    }
+
+    static SourceMetadata read(final DataInput input) throws IOException {
+        String packageName = input.readUTF();
+        String name = input.readUTF();
+        int kind = input.readByte();
+        if (kind >= KINDS.length) {
+            throw new IOException("Unknown source kind " + kind);
+        }
+        return new SourceMetadata(packageName, name, kind < 0 ? null : KINDS[kind], readList(input), readList(input), readList(input));
+    }
+
+    private static void writeList(final DataOutput output, final List<String> values) throws IOException {
+        output.writeInt(values.size());
+        for (String value : values) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static List<String> readList(final DataInput input) throws IOException {
+        int size = input.readInt();
+        if (size < 0) {
+            throw new IOException("Invalid list size " + size);
+        }
+        ObjectArrayList<String> values = new ObjectArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(input.readUTF());
+        }
+        return ObjectLists.unmodifiable(values);
+    }
+
+}
@@ -1,26 +1,30 @@
 package me.lauriichan.maven.sourcemod;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -31,13 +35,69 @@ import org.apache.maven.project.MavenProject;
 import org.jboss.forge.roaster.Roaster;
 import org.jboss.forge.roaster.model.source.JavaSource;
 
-import it.unimi.dsi.fastutil.objects.ObjectArrayFIFOQueue;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import me.lauriichan.maven.sourcemod.api.ISourceTransformer;
+import me.lauriichan.maven.sourcemod.api.SourceBatch;
 
 @Mojo(name = "modifySource", defaultPhase = LifecyclePhase.GENERATE_SOURCES, threadSafe = true, requiresDependencyResolution = ResolutionScope.COMPILE)
 public class SourceModificationMojo extends AbstractMojo {
 
+    private static final String MANIFEST_NAME = ".sourcemodification-manifest";
+
+    private static final MethodHandle REMOVE_SOURCE_ROOT;
+    private static final Throwable REMOVE_SOURCE_ROOT_ERROR;
+
+    static {
+        MethodHandle removeSourceRoot = null;
+        Throwable error = null;
+        try {
+            removeSourceRoot = MethodHandles.publicLookup().findVirtual(MavenProject.class, "removeCompileSourceRoot",
+                MethodType.methodType(void.class, String.class));
+        } catch (Throwable thrw) {
+            error = thrw;
+        }
+        REMOVE_SOURCE_ROOT = removeSourceRoot;
+        REMOVE_SOURCE_ROOT_ERROR = error;
+    }
+
+    private static final class ModificationRun {
+
+        private final TransformerIndex index;
+        private final ReplacementConfiguration[] replacements;
+        private final SourceManifest previous, manifest;
+        private final SourceCopier copier;
+        private final OutputWriter writer;
+        private final SessionSourceCache sharedSources;
+        private final boolean copyUnmodifiedFiles;
+        private final Charset charset;
+        private final ClassLoader loader;
+        private final PipelineTimings timings;
+        private final SlowTransforms slowest;
+        private final AtomicInteger reused = new AtomicInteger();
+        private final AtomicInteger overBudget = new AtomicInteger();
+        private final Set<String> overBudgetSources = ConcurrentHashMap.newKeySet();
+
+        private ModificationRun(final TransformerIndex index, final ReplacementConfiguration[] replacements,
+            final SourceManifest previous, final SourceManifest manifest, final SourceCopier copier, final OutputWriter writer,
+            final SessionSourceCache sharedSources, final boolean copyUnmodifiedFiles, final Charset charset, final ClassLoader loader,
+            final PipelineTimings timings, final SlowTransforms slowest) {
+            this.index = index;
+            this.replacements = replacements;
+            this.previous = previous;
+            this.manifest = manifest;
+            this.copier = copier;
+            this.writer = writer;
+            this.sharedSources = sharedSources;
+            this.copyUnmodifiedFiles = copyUnmodifiedFiles;
+            this.charset = charset;
+            this.loader = loader;
+            this.timings = timings;
+            this.slowest = slowest;
+        }
+
+    }
+
     @Parameter(defaultValue = "${project}", required = true, readonly = true)
     private MavenProject project;
 
@@ -71,84 +131,403 @@ public class SourceModificationMojo extends AbstractMojo {
     @Parameter
     private boolean copyUnmodifiedFiles = true;
 
+    @Parameter(property = "sourcemodification.parallelism", defaultValue = "1")
+    private int parallelism = 1;
+
+    @Parameter(property = "sourcemodification.incremental", defaultValue = "true")
+    private boolean incremental = true;
+
+    @Parameter(property = "sourcemodification.copyStrategy", defaultValue = "METADATA")
+    private CopyStrategy copyStrategy = CopyStrategy.METADATA;
+
+    @Parameter(property = "sourcemodification.copyThreads", defaultValue = "0")
+    private int copyThreads = 0;
+
+    @Parameter(property = "sourcemodification.overlay")
+    private boolean overlay = false;
+
+    @Parameter(property = "sourcemodification.sessionCache", defaultValue = "true")
+    private boolean sessionCache = true;
+
+    @Parameter(defaultValue = "${session}", readonly = true, required = true)
+    private MavenSession session;
+
+    @Parameter(property = "sourcemodification.classLoaderCache", defaultValue = "true")
+    private boolean classLoaderCache = true;
+
+    @Parameter(property = "sourcemodification.reuseInstances", defaultValue = "true")
+    private boolean reuseInstances = true;
+
+    @Parameter(property = "sourcemodification.timings", defaultValue = "false")
+    private boolean timings = false;
+
+    @Parameter(property = "sourcemodification.slowestTransforms", defaultValue = "0")
+    private int slowestTransforms = 0;
+
+    @Parameter(property = "sourcemodification.transformBudget", defaultValue = "0")
+    private long transformBudget = 0;
+
+    @Parameter(property = "sourcemodification.failOnBudget")
+    private boolean failOnBudget = false;
+
+    @Parameter(defaultValue = "${mojoExecution}", required = true, readonly = true)
+    private MojoExecution mojoExecution;
+
+    @Parameter(property = "sourcemodification.writeThreads", defaultValue = "1")
+    private int writeThreads = 1;
+
+    @Parameter(property = "sourcemodification.encoding", defaultValue = "${project.build.sourceEncoding}")
+    private String encoding;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
+        PipelineTimings timings = this.timings ? new PipelineTimings() : PipelineTimings.DISABLED;
+        long start = timings.now();
         List<SourceFile> sources = findSources();
+        timings.record("scan", start);
         if (sources.isEmpty()) {
             getLog().info("No sources to modify");
             return;
         }
-        final ClassLoader originalLoader = Thread.currentThread().getContextClassLoader();
-        try {
-            updateClassLoader();
-            List<ISourceTransformer> transformers = findTransformers();
-            File output;
+        try (ExecutionClassLoader classLoader = createClassLoader();
+            LifecycleRun lifecycle = new LifecycleRun(reuseInstances ? InstanceCache.get(session, getLog()) : null, classLoader)) {
+            List<LoadedTransformer> transformers = findTransformers(classLoader, lifecycle);
+            if (lifecycle.cache() != null) {
+                getLog().debug("Instance cache has " + lifecycle.cache().hits() + " hits and " + lifecycle.cache().misses()
+                    + " misses in this session");
+            }
+            lifecycle.begin(new SourceBatch(project.getId(), mojoExecution.getExecutionId(), outputDirectory, sources.size()));
+            boolean copyUnmodifiedFiles = overlay || this.copyUnmodifiedFiles;
             if (transformers.isEmpty()) {
                 getLog().info("No source transformers found");
                 if (!copyUnmodifiedFiles) {
                     return;
                 }
-                for (SourceFile file : sources) {
-                    output = new File(outputDirectory, file.relativePath());
-                    createFile(output);
-                    Files.copy(file.file().toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                }
-                return;
             }
+            Charset charset = SourceOutput.charset(encoding, getLog());
             ReplacementConfiguration[] replacements = this.replacements == null ? new ReplacementConfiguration[0] : this.replacements;
-            String outputName, originalOutputName;
-            for (SourceFile source : sources) {
-                JavaSource<?> javaSource = Roaster.parse(JavaSource.class, source.file());
-                String sourcePackage = javaSource.getPackage();
-                boolean modified = false;
-                for (ISourceTransformer transformer : transformers) {
-                    if (!transformer.canTransform(javaSource)) {
-                        continue;
-                    }
-                    if (!modified) {
-                        getLog().info("Transforming class '" + javaSource.getQualifiedName() + "'");
-                        modified = true;
+            File manifestFile = new File(outputDirectory, MANIFEST_NAME);
+            SourceManifest previous = null, manifest = null;
+            if (incremental) {
+                manifest = new SourceManifest(createFingerprint(transformers, replacements, copyUnmodifiedFiles, classLoader, charset));
+                previous = SourceManifest.load(manifestFile);
+            }
+            // Outputs of a failed run must never be mistaken for current ones, so the manifest only exists after a successful run
+            if (manifestFile.exists()) {
+                manifestFile.delete();
+            }
+            SourceManifest reusable = previous != null && manifest != null && previous.fingerprint().equals(manifest.fingerprint())
+                ? previous
+                : null;
+            int processors = Runtime.getRuntime().availableProcessors();
+            int threads = parallelism <= 0 ? processors : parallelism;
+            CopyStrategy copyStrategy = overlay && !this.copyStrategy.isLink() ? CopyStrategy.HARDLINK : this.copyStrategy;
+            try (SourceCopier copier = new SourceCopier(copyStrategy, copyThreads <= 0 ? processors : copyThreads, getLog(), timings);
+                OutputWriter writer = new OutputWriter(writeThreads, "SourceWrite", timings)) {
+                ModificationRun run = new ModificationRun(new TransformerIndex(transformers), replacements, reusable, manifest, copier,
+                    writer, sessionCache ? SessionSourceCache.get(session) : null, copyUnmodifiedFiles, charset, classLoader.loader(), timings,
+                    slowestTransforms > 0 ? new SlowTransforms(slowestTransforms) : null);
+                if (threads == 1 || sources.size() == 1) {
+                    BufferedLog log = new BufferedLog();
+                    for (SourceFile source : sources) {
+                        ExecutionClassLoader.run(run.loader, () -> modifySource(source, run, log));
+                        log.flushTo(getLog());
                     }
-                    transformer.transform(javaSource);
+                } else {
+                    modifySourcesParallel(sources, run, Math.min(threads, sources.size()));
                 }
-                outputName = resolveOutputName(source.relativePath());
-                originalOutputName = outputName;
-                for (ReplacementConfiguration replacement : replacements) {
-                    if (replacement.getPattern().isBlank()) {
-                        continue;
-                    }
-                    outputName = replacement.isRegex()
-                        ? replacePattern(outputName, replacement.getCompiledPattern(), replacement.getReplace())
-                        : outputName.replace(replacement.getPattern(), replacement.getReplace());
+                copier.finish();
+                if (run.sharedSources != null) {
+                    getLog().debug("Reused " + run.reused.get() + " parsed sources from this session");
                 }
-                boolean renamed = !outputName.equals(originalOutputName);
-                if (modified && !javaSource.getPackage().equals(sourcePackage)) {
-                    javaSource.setPackage(sourcePackage);
+                int failures = writer.finish(new OutputWriter.Listener() {
+                    @Override
+                    public void written(String name, boolean changed) {
+                        if (!changed) {
+                            getLog().info("Output '" + name + "' is unchanged");
+                        }
+                    }
+
+                    @Override
+                    public void failed(String name, Throwable error) {
+                        getLog().error("Failed to write output '" + name + "'", error);
+                    }
+                });
+                if (failures != 0) {
+                    throw new MojoExecutionException("Failed to write " + failures + " output file(s)");
                 }
-                if (renamed) {
-                    getLog().info("Renaming from '" + originalOutputName + "' to '" + outputName + "'");
-                    javaSource.setName(sanatizeName(outputName));
+                if (run.slowest != null) {
+                    run.slowest.log(getLog());
                 }
-                if (modified || renamed) {
-                    output = new File(outputDirectory, resolvePathWithoutName(source.relativePath()) + outputName);
-                    createFile(output);
-                    try (FileWriter writer = new FileWriter(output)) {
-                        writer.write(fixJBossRename(javaSource.toString(), renamed, originalOutputName, outputName));
+                if (failOnBudget && run.overBudget.get() != 0) {
+                    if (manifest != null) {
+                        // Only the offending sources have to be transformed again by the next build
+                        manifest.entries().keySet().removeAll(run.overBudgetSources);
+                        saveManifest(previous, manifest, manifestFile);
                     }
-                } else if (copyUnmodifiedFiles) {
-                    output = new File(outputDirectory, source.relativePath());
-                    createFile(output);
-                    Files.copy(source.file().toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    throw new MojoFailureException(run.overBudget.get() + " transformation(s) exceeded their time budget");
                 }
             }
+            if (manifest != null) {
+                saveManifest(previous, manifest, manifestFile);
+            }
+            if (overlay) {
+                registerOverlay();
+            }
+        } catch (MojoFailureException e) {
+            throw e;
         } catch (Exception e) {
             getLog().error(e);
             throw new MojoExecutionException(e.getMessage(), e);
         } finally {
-            Thread.currentThread().setContextClassLoader(originalLoader);
+            reportTimings(timings);
+        }
+    }
+
+    private void reportTimings(PipelineTimings timings) {
+        if (!timings.isEnabled()) {
+            return;
+        }
+        timings.log(getLog());
+        String executionId = mojoExecution.getExecutionId();
+        File report = new File(project.getBuild().getDirectory(), "sourcemodification-" + executionId + "-timings.json");
+        try {
+            timings.write(report, "modifySource", executionId);
+        } catch (IOException e) {
+            getLog().warn("Failed to write timing report '" + report + "'", e);
         }
     }
     
+    private void modifySourcesParallel(List<SourceFile> sources, ModificationRun run, int threads) throws Exception {
+        AtomicInteger threadId = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "SourceModification-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            ObjectArrayList<Future<BufferedLog>> futures = new ObjectArrayList<>(sources.size());
+            for (SourceFile source : sources) {
+                futures.add(executor.submit(() -> {
+                    BufferedLog log = new BufferedLog();
+                    ExecutionClassLoader.run(run.loader, () -> modifySource(source, run, log));
+                    return log;
+                }));
+            }
+            for (Future<BufferedLog> future : futures) {
+                try {
+                    future.get().flushTo(getLog());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Exception exception) {
+                        throw exception;
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void modifySource(SourceFile source, ModificationRun run, BufferedLog log) throws IOException {
+        SourceManifest previous = run.previous, manifest = run.manifest;
+        TransformerIndex index = run.index;
+        PipelineTimings timings = run.timings;
+        long start = timings.now();
+        byte[] content = Files.readAllBytes(source.file().toPath());
+        timings.record("read", start);
+        timings.read(content.length);
+        String hash = manifest != null || run.sharedSources != null ? Hashing.hash(content) : null;
+        if (manifest != null) {
+            SourceManifest.Entry entry = previous == null ? null : previous.get(source.relativePath());
+            if (entry != null && entry.hash().equals(hash) && (!entry.hasOutput() || new File(outputDirectory, entry.output()).isFile())) {
+                manifest.put(source.relativePath(), entry);
+                return;
+            }
+        }
+        if (index.isEmpty()) {
+            run.copier.copy(source.file().toPath(), new File(outputDirectory, source.relativePath()).toPath());
+            if (manifest != null) {
+                manifest.put(source.relativePath(), new SourceManifest.Entry(hash, source.relativePath()));
+            }
+            return;
+        }
+        start = timings.now();
+        String outputName = resolveOutputName(source.relativePath());
+        String originalOutputName = outputName;
+        for (ReplacementConfiguration replacement : run.replacements) {
+            if (replacement.getPattern().isBlank()) {
+                continue;
+            }
+            outputName = replacement.isRegex() ? replacePattern(outputName, replacement.getCompiledPattern(), replacement.getReplace())
+                : outputName.replace(replacement.getPattern(), replacement.getReplace());
+        }
+        boolean renamed = !outputName.equals(originalOutputName);
+        timings.record("rename", start);
+        start = timings.now();
+        BitSet candidates = index.prefilter(new RawSource(content, run.charset));
+        timings.record("prefilter", start);
+        String outputPath = null;
+        if (candidates.isEmpty() && !renamed) {
+            if (run.copyUnmodifiedFiles) {
+                outputPath = source.relativePath();
+                run.copier.copy(source.file().toPath(), new File(outputDirectory, outputPath).toPath());
+            }
+            if (manifest != null) {
+                manifest.put(source.relativePath(), new SourceManifest.Entry(hash, outputPath));
+            }
+            return;
+        }
+        start = timings.now();
+        JavaSource<?> javaSource = parseSource(source, content, hash, run);
+        timings.record("parse", start);
+        long baseline = run.sharedSources == null ? -1 : SessionSourceCache.modificationCount(javaSource);
+        String sourcePackage = javaSource.getPackage();
+        boolean modified = false;
+        index.select(javaSource, candidates);
+        long[] elapsed = new long[1];
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            LoadedTransformer transformer = index.get(i);
+            boolean accepted = transformer.canTransform(javaSource, elapsed);
+            long checked = elapsed[0];
+            timings.add("canTransform", transformer.name(), checked);
+            if (!accepted) {
+                if (run.slowest != null) {
+                    run.slowest.record(source.relativePath(), transformer.name(), checked);
+                }
+                continue;
+            }
+            if (!modified) {
+                log.info("Transforming class '" + javaSource.getQualifiedName() + "'");
+                modified = true;
+            }
+            long transformed = transformer.transform(javaSource);
+            timings.add("transform", transformer.name(), transformed);
+            if (run.slowest != null) {
+                run.slowest.record(source.relativePath(), transformer.name(), checked + transformed);
+            }
+            if (transformer.exceedsBudget(transformed)) {
+                run.overBudget.incrementAndGet();
+                run.overBudgetSources.add(source.relativePath());
+                log.warn("Transformer '" + transformer.name() + "' took " + transformed / 1_000_000L + " ms for '"
+                    + source.relativePath() + "', exceeding its budget of " + transformer.budgetMillis() + " ms");
+            }
+        }
+        if (modified && !javaSource.getPackage().equals(sourcePackage)) {
+            javaSource.setPackage(sourcePackage);
+        }
+        if (renamed) {
+            log.info("Renaming from '" + originalOutputName + "' to '" + outputName + "'");
+            javaSource.setName(sanatizeName(outputName));
+        }
+        if (modified || renamed) {
+            outputPath = resolvePathWithoutName(source.relativePath()) + outputName;
+            // Formatting is the expensive part, it stays on this worker so that the writer threads only do I/O
+            start = timings.now();
+            byte[] bytes = fixJBossRename(javaSource.toString(), renamed, originalOutputName, outputName).getBytes(run.charset);
+            timings.record("serialize", start);
+            run.writer.write(outputPath, new File(outputDirectory, outputPath).toPath(), () -> bytes);
+        } else {
+            if (run.sharedSources != null) {
+                run.sharedSources.offer(source.file(), hash, run.charset, javaSource, baseline);
+            }
+            if (run.copyUnmodifiedFiles) {
+                outputPath = source.relativePath();
+                run.copier.copy(source.file().toPath(), new File(outputDirectory, outputPath).toPath());
+            }
+        }
+        if (manifest != null) {
+            manifest.put(source.relativePath(), new SourceManifest.Entry(hash, outputPath));
+        }
+    }
+
+    private JavaSource<?> parseSource(SourceFile source, byte[] content, String hash, ModificationRun run) {
+        if (run.sharedSources != null) {
+            JavaSource<?> javaSource = run.sharedSources.take(source.file(), hash, run.charset);
+            if (javaSource != null) {
+                run.reused.incrementAndGet();
+                return javaSource;
+            }
+        }
+        return Roaster.parse(JavaSource.class, new String(content, run.charset));
+    }
+
+    private void registerOverlay() {
+        ObjectOpenHashSet<String> originals = new ObjectOpenHashSet<>();
+        for (String root : sourceDirectories) {
+            originals.add(new File(root).getAbsolutePath());
+        }
+        String outputRoot = outputDirectory.getAbsolutePath();
+        for (String root : new ObjectArrayList<>(project.getCompileSourceRoots())) {
+            if (!root.equals(outputRoot) && originals.contains(new File(root).getAbsolutePath())) {
+                removeCompileSourceRoot(root);
+            }
+        }
+        project.addCompileSourceRoot(outputRoot);
+        getLog().info("Registered overlay source root '" + outputRoot + "'");
+    }
+
+    private void removeCompileSourceRoot(String root) {
+        if (REMOVE_SOURCE_ROOT != null) {
+            try {
+                REMOVE_SOURCE_ROOT.invoke(project, root);
+                return;
+            } catch (Throwable thrw) {
+                getLog().debug("Failed to remove compile source root '" + root + "', removing it from the list instead", thrw);
+            }
+        } else {
+            getLog().debug("MavenProject.removeCompileSourceRoot is not available, removing '" + root + "' from the list instead",
+                REMOVE_SOURCE_ROOT_ERROR);
+        }
+        project.getCompileSourceRoots().remove(root);
+    }
+
+    private String createFingerprint(List<LoadedTransformer> transformers, ReplacementConfiguration[] replacements,
+        boolean copyUnmodifiedFiles, ExecutionClassLoader classLoader, Charset charset) throws IOException {
+        Fingerprint fingerprint = new Fingerprint().addCodeSource(SourceModificationMojo.class).add(copyUnmodifiedFiles);
+        fingerprint.add(charset.name()).add(copyStrategy.name()).add(overlay);
+        classLoader.addTo(fingerprint, new File(project.getBuild().getOutputDirectory()));
+        fingerprint.add(transformers.size());
+        for (int i = 0; i < transformers.size(); i++) {
+            SourceTransformerConfiguration configuration = this.transformers[i];
+            fingerprint.add(configuration.getClassName()).add(configuration.getProperties());
+            fingerprint.addCodeSource(transformers.get(i).transformer().getClass());
+        }
+        fingerprint.add(replacements.length);
+        for (ReplacementConfiguration replacement : replacements) {
+            fingerprint.add(replacement.isRegex()).add(replacement.getPattern()).add(replacement.getReplace());
+        }
+        return fingerprint.build();
+    }
+
+    private void saveManifest(SourceManifest previous, SourceManifest manifest, File manifestFile) throws IOException {
+        deleteStaleOutputs(previous, manifest);
+        manifest.save(manifestFile);
+    }
+
+    private void deleteStaleOutputs(SourceManifest previous, SourceManifest manifest) {
+        if (previous == null) {
+            return;
+        }
+        ObjectOpenHashSet<String> outputs = new ObjectOpenHashSet<>();
+        for (SourceManifest.Entry entry : manifest.entries().values()) {
+            if (entry.hasOutput()) {
+                outputs.add(entry.output());
+            }
+        }
+        for (SourceManifest.Entry entry : previous.entries().values()) {
+            if (!entry.hasOutput() || outputs.contains(entry.output())) {
+                continue;
+            }
+            File output = new File(outputDirectory, entry.output());
+            if (output.isFile()) {
+                getLog().info("Deleting stale output '" + entry.output() + "'");
+                output.delete();
+            }
+        }
+    }
+
     private String fixJBossRename(String javaSource, boolean renamed, String originalName, String newName) {
         if (!renamed) {
             return javaSource;
@@ -158,40 +537,27 @@ public class SourceModificationMojo extends AbstractMojo {
         return javaSource.replaceAll(String.format("\\b%s\\b", Pattern.quote(originalName)), newName);
     }
 
-    private void createFile(File file) throws IOException {
-        if (!file.exists()) {
-            File parent;
-            if ((parent = file.getParentFile()) != null && !parent.exists()) {
-                parent.mkdirs();
-            }
-            file.createNewFile();
-        }
-    }
-
-    private void updateClassLoader() throws DependencyResolutionRequiredException {
-        ObjectArrayList<URL> urlList = new ObjectArrayList<>();
+    private ExecutionClassLoader createClassLoader() throws DependencyResolutionRequiredException, IOException {
+        ObjectArrayList<File> fileList = new ObjectArrayList<>();
         for (final String runtimeResource : project.getRuntimeClasspathElements()) {
-            urlList.add(resolveUrl(runtimeResource));
+            fileList.add(new File(runtimeResource));
         }
         if (classPath != null && !classPath.isEmpty()) {
             for (String path : classPath) {
-                urlList.add(resolveUrl(path));
+                fileList.add(new File(path));
             }
         }
-        if (urlList.isEmpty()) {
-            return;
-        }
-        Thread thread = Thread.currentThread();
-        thread.setContextClassLoader(URLClassLoader.newInstance(urlList.toArray(URL[]::new), thread.getContextClassLoader()));
+        ClassLoaderCache cache = classLoaderCache ? ClassLoaderCache.get(session, getLog()) : null;
+        return ExecutionClassLoader.create(fileList, SourceModificationMojo.class.getClassLoader(), cache, getLog());
     }
 
-    private List<ISourceTransformer> findTransformers() throws MojoExecutionException {
+    private List<LoadedTransformer> findTransformers(ExecutionClassLoader executionLoader, LifecycleRun lifecycle)
+        throws MojoExecutionException {
         if (this.transformers == null || this.transformers.length == 0) {
             return Collections.emptyList();
         }
-        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
-        ObjectArrayList<ISourceTransformer> transformers = new ObjectArrayList<>();
-        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        ClassLoader classLoader = executionLoader.loader();
+        ObjectArrayList<LoadedTransformer> transformers = new ObjectArrayList<>();
         for (SourceTransformerConfiguration configuration : this.transformers) {
             Class<?> clazz;
             try {
@@ -205,22 +571,9 @@ public class SourceModificationMojo extends AbstractMojo {
             }
             Class<? extends ISourceTransformer> transformerClass = clazz.asSubclass(ISourceTransformer.class);
             try {
-                MethodHandles.Lookup privateLookup = MethodHandles.privateLookupIn(transformerClass, lookup);
-                MethodHandle handle;
-                boolean withProperties = true;
-                try {
-                    handle = privateLookup.findConstructor(clazz, MethodType.methodType(void.class, Properties.class));
-                } catch (NoSuchMethodException e0) {
-                    handle = privateLookup.findConstructor(clazz, MethodType.methodType(void.class));
-                    withProperties = false;
-                }
-                ISourceTransformer instance;
-                if (withProperties) {
-                    instance = transformerClass.cast(handle.invoke(configuration.getProperties()));
-                } else {
-                    instance = transformerClass.cast(handle.invoke());
-                }
-                transformers.add(instance);
+                long budget = configuration.getBudget() > 0 ? configuration.getBudget() : transformBudget;
+                transformers.add(new LoadedTransformer(lifecycle.create(transformerClass, configuration.getProperties()),
+                    budget * 1_000_000L));
             } catch (Throwable e) {
                 throw new MojoExecutionException("Couldn't create instance of transformer '" + configuration.getClassName() + "'", e);
             }
@@ -229,42 +582,7 @@ public class SourceModificationMojo extends AbstractMojo {
     }
 
     private List<SourceFile> findSources() {
-        if (sourceDirectories == null || sourceDirectories.isEmpty()) {
-            return Collections.emptyList();
-        }
-        ObjectArrayList<SourceFile> files = new ObjectArrayList<>();
-        ObjectArrayFIFOQueue<File> queue = new ObjectArrayFIFOQueue<>();
-        SimpleFilter filter = new SimpleFilter(includes, excludes, excludeByDefault);
-        File file;
-        File[] fileArray;
-        String path;
-        for (String root : sourceDirectories) {
-            file = new File(root);
-            if (!file.exists() || !file.isDirectory()) {
-                continue;
-            }
-            int rootLength = file.getAbsolutePath().length() + 1;
-            queue.enqueue(file);
-            while (!queue.isEmpty()) {
-                file = queue.dequeue();
-                fileArray = file.listFiles();
-                if (fileArray == null || fileArray.length == 0) {
-                    continue;
-                }
-                for (File current : fileArray) {
-                    if (current.isDirectory()) {
-                        queue.enqueue(current);
-                        continue;
-                    }
-                    path = current.getAbsolutePath().substring(rootLength).replace('\\', '/');
-                    if (filter.isFiltered(path)) {
-                        continue;
-                    }
-                    files.add(new SourceFile(current, path));
-                }
-            }
-        }
-        return files;
+        return SourceScanner.scan(sourceDirectories, new SimpleFilter(includes, excludes, excludeByDefault));
     }
 
     private String resolvePathWithoutName(final String path) {
@@ -313,12 +631,4 @@ public class SourceModificationMojo extends AbstractMojo {
         return matcher.replaceAll(Matcher.quoteReplacement(replacement));
     }
 
-    private URL resolveUrl(final String resource) {
-        try {
-            return new File(resource).toURI().toURL();
-        } catch (final MalformedURLException e) {
-            throw new RuntimeException(e.getMessage(), e);
-        }
-    }
-
 }
@@ -0,0 +1,81 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.maven.plugin.logging.Log;
+
+final class SourceOutput {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private SourceOutput() {
+        throw new UnsupportedOperationException();
+    }
+
+    public static Charset charset(final String encoding, final Log log) {
+        if (encoding == null || encoding.isBlank()) {
+            Charset charset = Charset.defaultCharset();
+            log.warn("File encoding has not been set, using platform encoding " + charset.name() + ", i.e. build is platform dependent!");
+            return charset;
+        }
+        return Charset.forName(encoding.trim());
+    }
+
+    public static boolean writeIfChanged(final Path target, final byte[] content) throws IOException {
+        if (isSameContent(target, content)) {
+            return false;
+        }
+        Path parent = target.toAbsolutePath().getParent();
+        String suffix = '.' + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp";
+        Path temp = parent.resolve('.' + target.getFileName().toString() + suffix);
+        try {
+            Files.write(temp, content, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return true;
+    }
+
+    static boolean isSameContent(final Path file, final byte[] content) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            return false;
+        }
+        if (!attributes.isRegularFile() || attributes.size() != content.length) {
+            return false;
+        }
+        byte[] buffer = new byte[Math.min(BUFFER_SIZE, Math.max(content.length, 1))];
+        try (InputStream stream = Files.newInputStream(file)) {
+            int offset = 0, read;
+            while ((read = stream.readNBytes(buffer, 0, buffer.length)) > 0) {
+                if (offset + read > content.length
+                    || !Arrays.equals(buffer, 0, read, content, offset, offset + read)) {
+                    return false;
+                }
+                offset += read;
+            }
+            return offset == content.length;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+}
@@ -4,34 +4,56 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Stream;
 
 import org.jboss.forge.roaster.model.source.JavaSource;
 
-import it.unimi.dsi.fastutil.objects.Object2ObjectArrayMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectCollection;
 import it.unimi.dsi.fastutil.objects.ObjectLists;
+import it.unimi.dsi.fastutil.objects.ReferenceLinkedOpenHashSet;
 import me.lauriichan.maven.sourcemod.api.source.SourcePackage;
 
 final class SourcePackageImpl extends SourcePackage {
 
+    static interface Sink {
+
+        LazySource finish(JavaSource<?> source) throws IllegalStateException;
+
+    }
+
     private final SourcePackageImpl root, parent;
 
     private final String name, path;
 
-    private final Object2ObjectArrayMap<String, JavaSource<?>> classMap = new Object2ObjectArrayMap<>();
-    private final Object2ObjectArrayMap<String, SourcePackageImpl> packageMap = new Object2ObjectArrayMap<>();
+    private final Object2ObjectLinkedOpenHashMap<String, LazySource> classMap = new Object2ObjectLinkedOpenHashMap<>();
+    private final Object2ObjectLinkedOpenHashMap<String, SourcePackageImpl> packageMap = new Object2ObjectLinkedOpenHashMap<>();
+
+    private final Object2ObjectOpenHashMap<String, LazySource> sourceIndex;
+    private final Object2ObjectOpenHashMap<String, SourcePackageImpl> packageIndex;
     
-    private final ObjectArrayList<JavaSource<?>> generatedSources;
+    private final ReferenceLinkedOpenHashSet<JavaSource<?>> generatedSources;
+    private final Sink sink;
+    private final ReentrantReadWriteLock lock;
+    private int generatedCount;
+
+    private volatile SourceQueryIndex queryIndex;
+    private volatile int modifications;
 
-    SourcePackageImpl(List<JavaSource<?>> sources) {
+    SourcePackageImpl(List<LazySource> sources, Sink sink) {
         this.root = this;
         this.parent = null;
         this.name = "";
         this.path = "";
-        this.generatedSources = new ObjectArrayList<>();
-        for (JavaSource<?> source : sources) {
+        this.sink = sink;
+        this.lock = new ReentrantReadWriteLock();
+        this.generatedSources = new ReferenceLinkedOpenHashSet<>();
+        this.sourceIndex = new Object2ObjectOpenHashMap<>(sources.size());
+        this.packageIndex = new Object2ObjectOpenHashMap<>();
+        for (LazySource source : sources) {
             add(source);
         }
     }
@@ -41,11 +63,49 @@ final class SourcePackageImpl extends SourcePackage {
         this.parent = parent;
         this.name = name;
         this.generatedSources = null;
+        this.sink = null;
+        this.lock = root.lock;
+        this.sourceIndex = null;
+        this.packageIndex = null;
         this.path = path.isEmpty() ? name : path + '.' + name;
     }
     
     final List<JavaSource<?>> generatedSources() {
-        return ObjectLists.unmodifiable(generatedSources);
+        lock.readLock().lock();
+        try {
+            return ObjectLists.unmodifiable(new ObjectArrayList<>(generatedSources));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    final int parsedSources() {
+        int parsed = 0;
+        for (LazySource source : snapshot(sourceIndex.values())) {
+            if (!source.isGenerated() && !source.isFinished() && source.isParsed()) {
+                parsed++;
+            }
+        }
+        return parsed;
+    }
+
+    final List<String> modifiedFinishedSources() {
+        ObjectArrayList<String> modified = new ObjectArrayList<>();
+        for (LazySource source : snapshot(sourceIndex.values())) {
+            if (source.isModifiedAfterFinish()) {
+                modified.add(source.packageName().isEmpty() ? source.name() : source.packageName() + '.' + source.name());
+            }
+        }
+        return modified;
+    }
+
+    final int totalSources() {
+        lock.readLock().lock();
+        try {
+            return sourceIndex.size() - generatedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     @Override
@@ -80,7 +140,7 @@ final class SourcePackageImpl extends SourcePackage {
 
     @Override
     public Stream<JavaSource<?>> stream() {
-        return classMap.values().stream();
+        return snapshot(classMap.values()).stream().map(LazySource::get);
     }
 
     @Override
@@ -88,10 +148,15 @@ final class SourcePackageImpl extends SourcePackage {
         if (path == null || path.isBlank()) {
             return false;
         }
-        if (!path.contains(".")) {
-            return classMap.containsKey(path);
+        lock.readLock().lock();
+        try {
+            if (path.indexOf('.') == -1) {
+                return classMap.containsKey(path);
+            }
+            return root.sourceIndex.containsKey(qualify(path));
+        } finally {
+            lock.readLock().unlock();
         }
-        return hasSource(path.split("\\."), 0);
     }
 
     @Override
@@ -99,34 +164,85 @@ final class SourcePackageImpl extends SourcePackage {
         return Optional.ofNullable(getSource(path));
     }
 
+    @Override
+    public List<JavaSource<?>> findAnnotatedWith(String annotation) {
+        return scoped(root.queryIndex().findAnnotatedWith(annotation));
+    }
+
+    @Override
+    public List<JavaSource<?>> findSubtypesOf(String type) {
+        return scoped(root.queryIndex().findSubtypesOf(type));
+    }
+
+    @Override
+    public List<JavaSource<?>> findImplementorsOf(String type) {
+        return scoped(root.queryIndex().findImplementorsOf(type));
+    }
+
     @Override
     public boolean hasDirectSource(String name) {
-        return classMap.containsKey(name);
+        lock.readLock().lock();
+        try {
+            return classMap.containsKey(name);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     @Override
     public JavaSource<?> getDirectSource(String name) {
-        return classMap.get(name);
+        LazySource source;
+        lock.readLock().lock();
+        try {
+            source = classMap.get(name);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return source == null ? null : source.get();
     }
 
     @Override
     public ObjectCollection<? extends SourcePackage> getPackages() {
-        return packageMap.values();
+        return ObjectLists.unmodifiable(snapshot(packageMap.values()));
     }
 
     @Override
     public SourcePackage findPackage(String path) {
-        return getPackageImplByPath(path);
+        lock.readLock().lock();
+        try {
+            return getPackageImplByPath(path);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     @Override
     public SourcePackage getDirectPackage(String name) {
-        return packageMap.get(name);
+        lock.readLock().lock();
+        try {
+            return packageMap.get(name);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     @Override
     public SourcePackage getOrCreatePackage(String path) {
-        return createPackageImplByPath(path);
+        lock.readLock().lock();
+        try {
+            SourcePackageImpl pkg = getPackageImplByPath(path);
+            if (pkg != null) {
+                return pkg;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            return createPackageImplByPath(path);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
@@ -140,114 +256,163 @@ final class SourcePackageImpl extends SourcePackage {
                 "Source creation doesn't do package creation at the same time, please use this without packages in the name '" + name
                     + "'.");
         }
-        if (classMap.containsKey(name)) {
-            throw new IllegalStateException("There is already a source file with the name '" + name + "'!");
+        LazySource lazySource = LazySource.of(source);
+        lock.writeLock().lock();
+        try {
+            if (classMap.putIfAbsent(name, lazySource) != null) {
+                throw new IllegalStateException("There is already a source file with the name '" + name + "'!");
+            }
+            root.sourceIndex.put(qualify(name), lazySource);
+            root.generatedSources.add(source);
+            root.generatedCount++;
+            root.modifications++;
+            root.queryIndex = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void finishSource(String name) throws IllegalStateException {
+        if (root.sink == null) {
+            throw new IllegalStateException("Generated sources can't be finished early here");
+        }
+        LazySource current;
+        lock.writeLock().lock();
+        try {
+            current = classMap.get(name);
+            if (current == null || !current.isGenerated() || !root.generatedSources.remove(current.get())) {
+                throw new IllegalStateException("There is no unfinished generated source with the name '" + name + "'!");
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LazySource stub = root.sink.finish(current.get());
+        lock.writeLock().lock();
+        try {
+            classMap.put(name, stub);
+            root.sourceIndex.put(qualify(name), stub);
+            root.modifications++;
+            root.queryIndex = null;
+        } finally {
+            lock.writeLock().unlock();
         }
-        classMap.put(name, source);
-        root.generatedSources.add(source);
     }
 
     @Override
     public Iterator<JavaSource<?>> iterator() {
-        return classMap.values().iterator();
+        return stream().iterator();
     }
 
     /*
      * Utils
      */
 
-    private void add(JavaSource<?> source) {
+    private void add(LazySource source) {
         if (!isRoot()) {
             root.add(source);
             return;
         }
-        String pkg = source.getPackage();
-        if (pkg == null || pkg.isBlank()) {
-            classMap.put(source.getName(), source);
-            return;
-        } else if (!pkg.contains(".")) {
-            createPackageImpl(pkg).classMap.put(source.getName(), source);
-            return;
+        String pkg = source.packageName();
+        SourcePackageImpl pkgImpl = pkg == null || pkg.isBlank() ? this : createPackageImplByPath(pkg);
+        pkgImpl.classMap.put(source.name(), source);
+        sourceIndex.put(pkgImpl.qualify(source.name()), source);
+    }
+
+    private SourceQueryIndex queryIndex() {
+        SourceQueryIndex index = queryIndex;
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            if ((index = queryIndex) != null) {
+                return index;
+            }
+            int version = modifications;
+            index = new SourceQueryIndex(snapshot(sourceIndex.values()));
+            lock.readLock().lock();
+            try {
+                if (version == modifications) {
+                    queryIndex = index;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            return index;
         }
-        add(source.getPackage().split("\\."), 0, source);
     }
 
-    private void add(String[] path, int depth, JavaSource<?> source) {
-        if (path.length == depth) {
-            classMap.put(source.getName(), source);
-            return;
+    private <E> ObjectArrayList<E> snapshot(ObjectCollection<E> values) {
+        lock.readLock().lock();
+        try {
+            return new ObjectArrayList<>(values);
+        } finally {
+            lock.readLock().unlock();
         }
-        createPackageImpl(path[depth]).add(path, depth + 1, source);
     }
 
-    private boolean hasSource(String[] path, int depth) {
-        if (path.length == depth + 1) {
-            return classMap.containsKey(path[depth]);
+    private List<JavaSource<?>> scoped(List<LazySource> sources) {
+        if (sources.isEmpty()) {
+            return ObjectLists.emptyList();
         }
-        SourcePackageImpl pkg = packageMap.get(path[depth]);
-        if (pkg == null) {
-            return false;
+        String prefix = path + '.';
+        ObjectArrayList<JavaSource<?>> list = new ObjectArrayList<>(sources.size());
+        for (LazySource source : sources) {
+            String pkg = source.packageName();
+            if (isRoot() || (pkg != null && (pkg.equals(path) || pkg.startsWith(prefix)))) {
+                list.add(source.get());
+            }
         }
-        return pkg.hasSource(path, depth + 1);
+        return ObjectLists.unmodifiable(list);
+    }
+
+    private String qualify(String name) {
+        return path.isEmpty() ? name : path + '.' + name;
     }
 
     private JavaSource<?> getSource(String path) {
         if (path == null || path.isBlank()) {
             return null;
         }
-        if (!path.contains(".")) {
-            return classMap.get(path);
-        }
-        return getSource(path.split("\\."), 0);
-    }
-
-    private JavaSource<?> getSource(String[] path, int depth) {
-        if (path.length == depth + 1) {
-            return classMap.get(path[depth]);
-        }
-        SourcePackageImpl pkg = packageMap.get(path[depth]);
-        if (pkg == null) {
-            return null;
+        LazySource source;
+        lock.readLock().lock();
+        try {
+            if (path.indexOf('.') == -1) {
+                source = classMap.get(path);
+            } else {
+                source = root.sourceIndex.get(qualify(path));
+            }
+        } finally {
+            lock.readLock().unlock();
         }
-        return pkg.getSource(path, depth + 1);
+        return source == null ? null : source.get();
     }
 
     private SourcePackageImpl getPackageImplByPath(String path) {
         if (path == null || path.isBlank()) {
             return this;
         }
-        if (!path.contains(".")) {
+        if (path.indexOf('.') == -1) {
             return packageMap.get(path);
         }
-        return getPackageImplByPath(path.split("\\."), 0);
-    }
-
-    private SourcePackageImpl getPackageImplByPath(String[] path, int depth) {
-        if (path.length == depth + 1) {
-            return packageMap.get(path[depth]);
-        }
-        SourcePackageImpl pkg = packageMap.get(path[depth]);
-        if (pkg == null) {
-            return null;
-        }
-        return pkg.getPackageImplByPath(path, depth + 1);
+        return root.packageIndex.get(qualify(path));
     }
 
     private SourcePackageImpl createPackageImplByPath(String path) {
         if (path == null || path.isBlank()) {
             return this;
         }
-        if (!path.contains(".")) {
-            return createPackageImpl(path);
+        SourcePackageImpl pkg = root.packageIndex.get(qualify(path));
+        if (pkg != null) {
+            return pkg;
         }
-        return createPackageImplByPath(path.split("\\."), 0);
-    }
-
-    private SourcePackageImpl createPackageImplByPath(String[] path, int depth) {
-        if (path.length == depth + 1) {
-            return createPackageImpl(path[depth]);
+        pkg = this;
+        int start = 0, end;
+        while ((end = path.indexOf('.', start)) != -1) {
+            pkg = pkg.createPackageImpl(path.substring(start, end));
+            start = end + 1;
         }
-        return createPackageImpl(path[depth]).createPackageImplByPath(path, depth + 1);
+        return pkg.createPackageImpl(path.substring(start));
     }
 
     private SourcePackageImpl createPackageImpl(String name) {
@@ -260,6 +425,7 @@ final class SourcePackageImpl extends SourcePackage {
         }
         pkg = new SourcePackageImpl(root, this, name, this.path);
         packageMap.put(name, pkg);
+        root.packageIndex.put(pkg.path, pkg);
         return pkg;
     }
 
@@ -0,0 +1,105 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.util.Collection;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayFIFOQueue;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectList;
+import it.unimi.dsi.fastutil.objects.ObjectLists;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import me.lauriichan.maven.sourcemod.api.SourceKind;
+
+final class SourceQueryIndex {
+
+    private final Object2ObjectOpenHashMap<String, ObjectArrayList<LazySource>> annotated = new Object2ObjectOpenHashMap<>();
+    private final Object2ObjectOpenHashMap<String, ObjectArrayList<LazySource>> children = new Object2ObjectOpenHashMap<>();
+    private final Object2ObjectOpenHashMap<LazySource, SourceMetadata> metadata = new Object2ObjectOpenHashMap<>();
+
+    private final Object2ObjectOpenHashMap<String, ObjectList<LazySource>> subtypes = new Object2ObjectOpenHashMap<>();
+
+    public SourceQueryIndex(final Collection<LazySource> sources) {
+        for (LazySource source : sources) {
+            SourceMetadata metadata = source.metadata();
+            this.metadata.put(source, metadata);
+            for (String name : metadata.annotations()) {
+                add(annotated, name, source);
+                String simple = simpleName(name);
+                if (!simple.equals(name)) {
+                    add(annotated, simple, source);
+                }
+            }
+            for (String type : metadata.supertypes()) {
+                add(children, type, source);
+                String simple = simpleName(type);
+                if (!simple.equals(type)) {
+                    add(children, simple, source);
+                }
+            }
+        }
+    }
+
+    public List<LazySource> findAnnotatedWith(final String annotation) {
+        ObjectArrayList<LazySource> list = annotated.get(annotation);
+        return list == null ? ObjectLists.emptyList() : ObjectLists.unmodifiable(list);
+    }
+
+    public List<LazySource> findSubtypesOf(final String type) {
+        synchronized (subtypes) {
+            ObjectList<LazySource> list = subtypes.get(type);
+            if (list == null) {
+                subtypes.put(type, list = ObjectLists.unmodifiable(collectSubtypes(type)));
+            }
+            return list;
+        }
+    }
+
+    public List<LazySource> findImplementorsOf(final String type) {
+        ObjectArrayList<LazySource> list = new ObjectArrayList<>();
+        for (LazySource source : findSubtypesOf(type)) {
+            SourceKind kind = metadata.get(source).kind();
+            if (kind == SourceKind.INTERFACE || kind == SourceKind.ANNOTATION) {
+                continue;
+            }
+            list.add(source);
+        }
+        return ObjectLists.unmodifiable(list);
+    }
+
+    private ObjectArrayList<LazySource> collectSubtypes(final String type) {
+        ObjectLinkedOpenHashSet<LazySource> result = new ObjectLinkedOpenHashSet<>();
+        ObjectOpenHashSet<String> visited = new ObjectOpenHashSet<>();
+        ObjectArrayFIFOQueue<String> queue = new ObjectArrayFIFOQueue<>();
+        queue.enqueue(type);
+        visited.add(type);
+        while (!queue.isEmpty()) {
+            ObjectArrayList<LazySource> list = children.get(queue.dequeue());
+            if (list == null) {
+                continue;
+            }
+            for (LazySource child : list) {
+                if (!result.add(child)) {
+                    continue;
+                }
+                String name = metadata.get(child).qualifiedName();
+                if (visited.add(name)) {
+                    queue.enqueue(name);
+                }
+            }
+        }
+        return new ObjectArrayList<>(result);
+    }
+
+    private static String simpleName(final String name) {
+        int idx = name.lastIndexOf('.');
+        return idx == -1 ? name : name.substring(idx + 1);
+    }
+
+    private static void add(final Object2ObjectOpenHashMap<String, ObjectArrayList<LazySource>> map, final String key,
+        final LazySource source) {
+        map.computeIfAbsent(key, ignore -> new ObjectArrayList<>()).add(source);
+    }
+
+}
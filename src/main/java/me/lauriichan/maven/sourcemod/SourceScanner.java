@@ -0,0 +1,110 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+final class SourceScanner {
+
+    private SourceScanner() {
+        throw new UnsupportedOperationException();
+    }
+
+    public static List<SourceFile> scan(final List<String> roots, final SimpleFilter filter) {
+        if (roots == null || roots.isEmpty()) {
+            return Collections.emptyList();
+        }
+        ObjectArrayList<ScanTask> tasks = new ObjectArrayList<>();
+        for (String root : roots) {
+            Path path = Paths.get(root).toAbsolutePath();
+            if (!Files.isDirectory(path)) {
+                continue;
+            }
+            tasks.add(new ScanTask(filter, path, ""));
+        }
+        if (tasks.isEmpty()) {
+            return Collections.emptyList();
+        }
+        ObjectArrayList<SourceFile> files = new ObjectArrayList<>();
+        if (tasks.size() == 1) {
+            ForkJoinPool.commonPool().invoke(tasks.get(0));
+        } else {
+            ForkJoinTask.invokeAll(tasks);
+        }
+        for (ScanTask task : tasks) {
+            ObjectArrayList<SourceFile> result = task.join();
+            result.sort(Comparator.comparing(SourceFile::relativePath));
+            files.addAll(result);
+        }
+        return files;
+    }
+
+    private static final class ScanTask extends RecursiveTask<ObjectArrayList<SourceFile>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final SimpleFilter filter;
+        private final Path directory;
+        private final String relativePath;
+
+        private ScanTask(final SimpleFilter filter, final Path directory, final String relativePath) {
+            this.filter = filter;
+            this.directory = directory;
+            this.relativePath = relativePath;
+        }
+
+        @Override
+        protected ObjectArrayList<SourceFile> compute() {
+            ObjectArrayList<SourceFile> files = new ObjectArrayList<>();
+            ObjectArrayList<ScanTask> subtasks = new ObjectArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path entry : stream) {
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                    } catch (IOException e) {
+                        continue;
+                    }
+                    String path = relativePath + entry.getFileName().toString();
+                    if (attributes.isDirectory()) {
+                        path += '/';
+                        if (filter.canMatchUnder(path)) {
+                            subtasks.add(new ScanTask(filter, entry, path));
+                        }
+                        continue;
+                    }
+                    if (filter.isFiltered(path)) {
+                        continue;
+                    }
+                    files.add(new SourceFile(entry.toFile(), path, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                }
+            } catch (IOException e) {
+                return files;
+            }
+            if (subtasks.isEmpty()) {
+                return files;
+            }
+            for (int i = 1; i < subtasks.size(); i++) {
+                subtasks.get(i).fork();
+            }
+            files.addAll(subtasks.get(0).compute());
+            for (int i = 1; i < subtasks.size(); i++) {
+                files.addAll(subtasks.get(i).join());
+            }
+            return files;
+        }
+
+    }
+
+}
@@ -12,6 +12,9 @@ public final class SourceTransformerConfiguration {
     @Parameter(property = "properties", required = false)
     private Properties properties;
 
+    @Parameter(property = "budget", required = false)
+    private long budget;
+
     public String getClassName() {
         if (className == null) {
             return "";
@@ -33,5 +36,13 @@ public final class SourceTransformerConfiguration {
     public void setProperties(final Properties properties) {
         this.properties = properties == null ? new Properties() : (Properties) properties.clone();
     }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public void setBudget(final long budget) {
+        this.budget = budget;
+    }
     
 }
@@ -0,0 +1,214 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jboss.forge.roaster.model.source.AnnotationSource;
+import org.jboss.forge.roaster.model.source.InterfaceCapableSource;
+import org.jboss.forge.roaster.model.source.JavaClassSource;
+import org.jboss.forge.roaster.model.source.JavaSource;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import me.lauriichan.maven.sourcemod.api.SourceKind;
+import me.lauriichan.maven.sourcemod.api.SourceSelector;
+
+final class TransformerIndex {
+
+    private static final SourceKind[] KINDS = SourceKind.values();
+
+    private final List<LoadedTransformer> transformers;
+
+    private final BitSet all = new BitSet();
+    private final BitSet prefiltered = new BitSet();
+
+    private final BitSet[] kinds = new BitSet[KINDS.length + 1];
+
+    private final BitSet anyAnnotation = new BitSet();
+    private final BitSet qualifiedAnnotations = new BitSet();
+    private final Object2ObjectOpenHashMap<String, BitSet> annotations = new Object2ObjectOpenHashMap<>();
+
+    private final BitSet anySupertype = new BitSet();
+    private final Object2ObjectOpenHashMap<String, BitSet> supertypes = new Object2ObjectOpenHashMap<>();
+
+    private final BitSet anyPackage = new BitSet();
+    private final PackageGlob[][] packageGlobs;
+    private final ConcurrentHashMap<String, BitSet> packages = new ConcurrentHashMap<>();
+    private final boolean hasPackageGlobs;
+
+    public TransformerIndex(final List<LoadedTransformer> transformers) {
+        this.transformers = transformers;
+        this.packageGlobs = new PackageGlob[transformers.size()][];
+        for (int i = 0; i < kinds.length; i++) {
+            kinds[i] = new BitSet();
+        }
+        for (int i = 0; i < transformers.size(); i++) {
+            LoadedTransformer transformer = transformers.get(i);
+            all.set(i);
+            if (transformer.hasPrefilter()) {
+                prefiltered.set(i);
+            }
+            SourceSelector selector = transformer.transformer().selector();
+            if (selector == null) {
+                selector = SourceSelector.ANY;
+            }
+            if (selector.kinds().isEmpty()) {
+                for (BitSet kind : kinds) {
+                    kind.set(i);
+                }
+            } else {
+                for (SourceKind kind : selector.kinds()) {
+                    kinds[kind.ordinal()].set(i);
+                }
+            }
+            index(i, selector.annotations(), anyAnnotation, annotations);
+            for (String annotation : selector.annotations()) {
+                if (annotation.indexOf('.') != -1) {
+                    qualifiedAnnotations.set(i);
+                }
+            }
+            index(i, selector.supertypes(), anySupertype, supertypes);
+            if (selector.packageGlobs().isEmpty()) {
+                anyPackage.set(i);
+            } else {
+                packageGlobs[i] = selector.packageGlobs().stream().map(PackageGlob::compile).toArray(PackageGlob[]::new);
+            }
+        }
+        this.hasPackageGlobs = anyPackage.cardinality() != transformers.size();
+    }
+
+    private static void index(final int idx, final List<String> names, final BitSet any, final Object2ObjectOpenHashMap<String, BitSet> map) {
+        if (names.isEmpty()) {
+            any.set(idx);
+            return;
+        }
+        for (String name : names) {
+            map.computeIfAbsent(name, ignore -> new BitSet()).set(idx);
+        }
+    }
+
+    public boolean isEmpty() {
+        return transformers.isEmpty();
+    }
+
+    public LoadedTransformer get(final int idx) {
+        return transformers.get(idx);
+    }
+
+    public BitSet prefilter(final RawSource source) {
+        BitSet candidates = (BitSet) all.clone();
+        for (int i = prefiltered.nextSetBit(0); i >= 0; i = prefiltered.nextSetBit(i + 1)) {
+            if (!transformers.get(i).accepts(source)) {
+                candidates.clear(i);
+            }
+        }
+        if (!candidates.isEmpty()) {
+            preselect(source.header(), candidates);
+        }
+        return candidates;
+    }
+
+    private void preselect(final SourceHeader header, final BitSet candidates) {
+        if (hasPackageGlobs) {
+            candidates.and(packages.computeIfAbsent(header.packageName(), this::matchPackage));
+        }
+        if (!header.hasType() || candidates.isEmpty()) {
+            return;
+        }
+        candidates.and(kinds[header.kind().ordinal()]);
+        if (annotations.isEmpty() || candidates.isEmpty()) {
+            return;
+        }
+        BitSet matched = (BitSet) anyAnnotation.clone();
+        for (String annotation : header.annotations()) {
+            lookup(annotations, annotation.substring(annotation.lastIndexOf('.') + 1), matched);
+            String qualified = header.resolve(annotation);
+            if (qualified == null) {
+                matched.or(qualifiedAnnotations);
+            } else {
+                lookup(annotations, qualified, matched);
+            }
+        }
+        candidates.and(matched);
+    }
+
+    public void select(final JavaSource<?> source, final BitSet candidates) {
+        SourceKind kind = SourceKind.of(source);
+        candidates.and(kinds[kind == null ? KINDS.length : kind.ordinal()]);
+        if (candidates.isEmpty()) {
+            return;
+        }
+        if (!annotations.isEmpty()) {
+            BitSet matched = (BitSet) anyAnnotation.clone();
+            for (AnnotationSource<?> annotation : source.getAnnotations()) {
+                lookup(annotations, annotation.getName(), matched);
+                lookupType(annotations, annotation.getQualifiedName(), matched);
+            }
+            candidates.and(matched);
+            if (candidates.isEmpty()) {
+                return;
+            }
+        }
+        if (!supertypes.isEmpty()) {
+            BitSet matched = (BitSet) anySupertype.clone();
+            if (source instanceof JavaClassSource classSource) {
+                lookupType(supertypes, classSource.getSuperType(), matched);
+            }
+            if (source instanceof InterfaceCapableSource<?> interfaceSource) {
+                for (String type : interfaceSource.getInterfaces()) {
+                    lookupType(supertypes, type, matched);
+                }
+            }
+            candidates.and(matched);
+            if (candidates.isEmpty()) {
+                return;
+            }
+        }
+        if (hasPackageGlobs) {
+            String pkg = source.getPackage();
+            candidates.and(packages.computeIfAbsent(pkg == null ? "" : pkg, this::matchPackage));
+        }
+    }
+
+    private BitSet matchPackage(final String pkg) {
+        BitSet matched = (BitSet) anyPackage.clone();
+        for (int i = 0; i < packageGlobs.length; i++) {
+            if (packageGlobs[i] == null) {
+                continue;
+            }
+            for (PackageGlob glob : packageGlobs[i]) {
+                if (glob.matches(pkg)) {
+                    matched.set(i);
+                    break;
+                }
+            }
+        }
+        return matched;
+    }
+
+    private static void lookupType(final Object2ObjectOpenHashMap<String, BitSet> map, String type, final BitSet matched) {
+        if (type == null || type.isEmpty()) {
+            return;
+        }
+        int generic = type.indexOf('<');
+        if (generic != -1) {
+            type = type.substring(0, generic);
+        }
+        lookup(map, type, matched);
+        int idx = type.lastIndexOf('.');
+        if (idx != -1) {
+            lookup(map, type.substring(idx + 1), matched);
+        }
+    }
+
+    private static void lookup(final Object2ObjectOpenHashMap<String, BitSet> map, final String name, final BitSet matched) {
+        if (name == null) {
+            return;
+        }
+        BitSet bits = map.get(name);
+        if (bits != null) {
+            matched.or(bits);
+        }
+    }
+
+}
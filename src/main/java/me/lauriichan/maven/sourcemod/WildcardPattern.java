@@ -0,0 +1,128 @@
+package me.lauriichan.maven.sourcemod;
+
+import java.util.Arrays;
+
+final class WildcardPattern {
+
+    private final String pattern;
+    private final char[] chars;
+    private final String literalPrefix;
+    private final boolean literal;
+    private final boolean trailingStar;
+
+    public WildcardPattern(final String pattern) {
+        this.pattern = pattern;
+        this.chars = pattern.toCharArray();
+        int idx = 0;
+        while (idx < chars.length && chars[idx] != '*' && chars[idx] != '?') {
+            idx++;
+        }
+        this.literalPrefix = pattern.substring(0, idx);
+        this.literal = idx == chars.length;
+        this.trailingStar = chars.length != 0 && chars[chars.length - 1] == '*';
+    }
+
+    public String pattern() {
+        return pattern;
+    }
+
+    public String literalPrefix() {
+        return literalPrefix;
+    }
+
+    public boolean matches(final String path) {
+        if (literal) {
+            return pattern.equals(path);
+        }
+        if (!path.startsWith(literalPrefix)) {
+            return false;
+        }
+        int patternIdx = literalPrefix.length(), pathIdx = patternIdx;
+        int starIdx = -1, starPathIdx = 0;
+        int length = path.length();
+        while (pathIdx < length) {
+            if (patternIdx < chars.length && (chars[patternIdx] == '?' || chars[patternIdx] == path.charAt(pathIdx))) {
+                patternIdx++;
+                pathIdx++;
+            } else if (patternIdx < chars.length && chars[patternIdx] == '*') {
+                starIdx = patternIdx++;
+                starPathIdx = pathIdx;
+            } else if (starIdx != -1) {
+                patternIdx = starIdx + 1;
+                pathIdx = ++starPathIdx;
+            } else {
+                return false;
+            }
+        }
+        while (patternIdx < chars.length && chars[patternIdx] == '*') {
+            patternIdx++;
+        }
+        return patternIdx == chars.length;
+    }
+
+    public boolean matchesEverythingUnder(final String directory) {
+        return trailingStar && matches(directory);
+    }
+
+    public boolean canMatchUnder(final String directory) {
+        int prefixLength = Math.min(literalPrefix.length(), directory.length());
+        if (!directory.regionMatches(0, literalPrefix, 0, prefixLength)) {
+            return false;
+        }
+        if (literalPrefix.length() > directory.length()) {
+            return true;
+        }
+        long[] states = new long[(chars.length >> 6) + 1];
+        long[] next = new long[states.length];
+        set(states, literalPrefix.length());
+        closure(states);
+        for (int pathIdx = literalPrefix.length(); pathIdx < directory.length(); pathIdx++) {
+            char ch = directory.charAt(pathIdx);
+            boolean alive = false;
+            for (int idx = 0; idx < chars.length; idx++) {
+                if (!isSet(states, idx)) {
+                    continue;
+                }
+                char patternCh = chars[idx];
+                if (patternCh == '*') {
+                    set(next, idx);
+                    alive = true;
+                } else if (patternCh == '?' || patternCh == ch) {
+                    set(next, idx + 1);
+                    alive = true;
+                }
+            }
+            if (!alive) {
+                return false;
+            }
+            closure(next);
+            long[] swap = states;
+            states = next;
+            next = swap;
+            Arrays.fill(next, 0L);
+        }
+        for (int idx = 0; idx < chars.length; idx++) {
+            if (isSet(states, idx)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void closure(final long[] states) {
+        for (int idx = 0; idx < chars.length; idx++) {
+            if (chars[idx] == '*' && isSet(states, idx)) {
+                set(states, idx + 1);
+            }
+        }
+    }
+
+    private static void set(final long[] states, final int idx) {
+        states[idx >> 6] |= 1L << (idx & 63);
+    }
+
+    private static boolean isSet(final long[] states, final int idx) {
+        return (states[idx >> 6] & (1L << (idx & 63))) != 0;
+    }
+
+}
@@ -0,0 +1,13 @@
+package me.lauriichan.maven.sourcemod.api;
+
+public interface ISourceLifecycle {
+
+    default void onStart(SourceContext context) {}
+
+    default void onBatchBegin(SourceBatch batch) {}
+
+    default void onBatchEnd(SourceBatch batch) {}
+
+    default void onFinish(SourceContext context) {}
+
+}
@@ -3,6 +3,14 @@ package me.lauriichan.maven.sourcemod.api;
 import org.jboss.forge.roaster.model.source.JavaSource;
 
 public interface ISourceTransformer {
+
+    default SourcePrefilter prefilter() {
+        return SourcePrefilter.ANY;
+    }
+
+    default SourceSelector selector() {
+        return SourceSelector.ANY;
+    }
     
     boolean canTransform(JavaSource<?> source);
     
@@ -0,0 +1,35 @@
+package me.lauriichan.maven.sourcemod.api;
+
+import java.io.File;
+
+public final class SourceBatch {
+
+    private final String project;
+    private final String executionId;
+    private final File outputDirectory;
+    private final int sources;
+
+    public SourceBatch(final String project, final String executionId, final File outputDirectory, final int sources) {
+        this.project = project;
+        this.executionId = executionId;
+        this.outputDirectory = outputDirectory;
+        this.sources = sources;
+    }
+
+    public String project() {
+        return project;
+    }
+
+    public String executionId() {
+        return executionId;
+    }
+
+    public File outputDirectory() {
+        return outputDirectory;
+    }
+
+    public int sources() {
+        return sources;
+    }
+
+}
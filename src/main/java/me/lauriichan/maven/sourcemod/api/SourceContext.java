@@ -0,0 +1,37 @@
+package me.lauriichan.maven.sourcemod.api;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+public final class SourceContext {
+
+    private final ConcurrentHashMap<String, Object> values = new ConcurrentHashMap<>();
+
+    public boolean has(final String key) {
+        return values.containsKey(key);
+    }
+
+    public <T> T get(final String key, final Class<T> type) {
+        Object value = values.get(key);
+        return type.isInstance(value) ? type.cast(value) : null;
+    }
+
+    public void set(final String key, final Object value) {
+        Objects.requireNonNull(key, "Key can't be null");
+        if (value == null) {
+            values.remove(key);
+            return;
+        }
+        values.put(key, value);
+    }
+
+    public <T> T computeIfAbsent(final String key, final Class<T> type, final Function<String, ? extends T> function) {
+        Object value = values.computeIfAbsent(key, function);
+        if (!type.isInstance(value)) {
+            throw new IllegalStateException("Value of '" + key + "' is not of type '" + type.getName() + "'");
+        }
+        return type.cast(value);
+    }
+
+}
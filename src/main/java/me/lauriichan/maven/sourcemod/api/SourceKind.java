@@ -0,0 +1,32 @@
+package me.lauriichan.maven.sourcemod.api;
+
+import org.jboss.forge.roaster.model.source.JavaSource;
+
+public enum SourceKind {
+
+    CLASS,
+    RECORD,
+    ENUM,
+    INTERFACE,
+    ANNOTATION;
+
+    public static SourceKind of(final JavaSource<?> source) {
+        if (source.isClass()) {
+            return CLASS;
+        }
+        if (source.isRecord()) {
+            return RECORD;
+        }
+        if (source.isEnum()) {
+            return ENUM;
+        }
+        if (source.isInterface()) {
+            return INTERFACE;
+        }
+        if (source.isAnnotation()) {
+            return ANNOTATION;
+        }
+        return null;
+    }
+
+}
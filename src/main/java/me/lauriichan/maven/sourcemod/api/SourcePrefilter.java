@@ -0,0 +1,85 @@
+package me.lauriichan.maven.sourcemod.api;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectLists;
+
+public final class SourcePrefilter {
+
+    public static final SourcePrefilter ANY = new SourcePrefilter(Collections.emptyList(), Collections.emptyList(),
+        Collections.emptyList());
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+
+        private final ObjectArrayList<String> annotations = new ObjectArrayList<>();
+        private final ObjectArrayList<String> tokens = new ObjectArrayList<>();
+        private final ObjectArrayList<String> packages = new ObjectArrayList<>();
+
+        private Builder() {}
+
+        public Builder annotation(final String... simpleNames) {
+            return add(annotations, simpleNames);
+        }
+
+        public Builder token(final String... tokens) {
+            return add(this.tokens, tokens);
+        }
+
+        public Builder packageGlob(final String... globs) {
+            return add(packages, globs);
+        }
+
+        private Builder add(final ObjectArrayList<String> list, final String[] values) {
+            for (String value : values) {
+                Objects.requireNonNull(value, "Value can't be null");
+                if (value.isBlank()) {
+                    throw new IllegalArgumentException("Value can't be blank");
+                }
+                list.add(value);
+            }
+            return this;
+        }
+
+        public SourcePrefilter build() {
+            if (annotations.isEmpty() && tokens.isEmpty() && packages.isEmpty()) {
+                return ANY;
+            }
+            return new SourcePrefilter(annotations, tokens, packages);
+        }
+
+    }
+
+    private final List<String> annotations;
+    private final List<String> tokens;
+    private final List<String> packages;
+
+    private SourcePrefilter(final List<String> annotations, final List<String> tokens, final List<String> packages) {
+        this.annotations = ObjectLists.unmodifiable(new ObjectArrayList<>(annotations));
+        this.tokens = ObjectLists.unmodifiable(new ObjectArrayList<>(tokens));
+        this.packages = ObjectLists.unmodifiable(new ObjectArrayList<>(packages));
+    }
+
+    public boolean isAny() {
+        return annotations.isEmpty() && tokens.isEmpty() && packages.isEmpty();
+    }
+
+    public List<String> annotations() {
+        return annotations;
+    }
+
+    public List<String> tokens() {
+        return tokens;
+    }
+
+    public List<String> packageGlobs() {
+        return packages;
+    }
+
+}
@@ -0,0 +1,116 @@
+package me.lauriichan.maven.sourcemod.api;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectLists;
+
+public final class SourceSelector {
+
+    public static final SourceSelector ANY = new SourceSelector(EnumSet.noneOf(SourceKind.class), Collections.emptyList(),
+        Collections.emptyList(), Collections.emptyList());
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+
+        private final EnumSet<SourceKind> kinds = EnumSet.noneOf(SourceKind.class);
+        private final ObjectArrayList<String> annotations = new ObjectArrayList<>();
+        private final ObjectArrayList<String> supertypes = new ObjectArrayList<>();
+        private final ObjectArrayList<String> packages = new ObjectArrayList<>();
+
+        private Builder() {}
+
+        public Builder kind(final SourceKind... kinds) {
+            for (SourceKind kind : kinds) {
+                this.kinds.add(Objects.requireNonNull(kind, "Kind can't be null"));
+            }
+            return this;
+        }
+
+        public Builder annotation(final String... names) {
+            return add(annotations, names);
+        }
+
+        public Builder annotation(final Class<?>... types) {
+            for (Class<?> type : types) {
+                annotations.add(type.getName());
+            }
+            return this;
+        }
+
+        public Builder supertype(final String... names) {
+            return add(supertypes, names);
+        }
+
+        public Builder supertype(final Class<?>... types) {
+            for (Class<?> type : types) {
+                supertypes.add(type.getName());
+            }
+            return this;
+        }
+
+        public Builder packageGlob(final String... globs) {
+            return add(packages, globs);
+        }
+
+        private Builder add(final ObjectArrayList<String> list, final String[] values) {
+            for (String value : values) {
+                Objects.requireNonNull(value, "Value can't be null");
+                if (value.isBlank()) {
+                    throw new IllegalArgumentException("Value can't be blank");
+                }
+                list.add(value);
+            }
+            return this;
+        }
+
+        public SourceSelector build() {
+            if (kinds.isEmpty() && annotations.isEmpty() && supertypes.isEmpty() && packages.isEmpty()) {
+                return ANY;
+            }
+            return new SourceSelector(kinds, annotations, supertypes, packages);
+        }
+
+    }
+
+    private final Set<SourceKind> kinds;
+    private final List<String> annotations;
+    private final List<String> supertypes;
+    private final List<String> packages;
+
+    private SourceSelector(final EnumSet<SourceKind> kinds, final List<String> annotations, final List<String> supertypes,
+        final List<String> packages) {
+        this.kinds = Collections.unmodifiableSet(EnumSet.copyOf(kinds));
+        this.annotations = ObjectLists.unmodifiable(new ObjectArrayList<>(annotations));
+        this.supertypes = ObjectLists.unmodifiable(new ObjectArrayList<>(supertypes));
+        this.packages = ObjectLists.unmodifiable(new ObjectArrayList<>(packages));
+    }
+
+    public boolean isAny() {
+        return kinds.isEmpty() && annotations.isEmpty() && supertypes.isEmpty() && packages.isEmpty();
+    }
+
+    public Set<SourceKind> kinds() {
+        return kinds;
+    }
+
+    public List<String> annotations() {
+        return annotations;
+    }
+
+    public List<String> supertypes() {
+        return supertypes;
+    }
+
+    public List<String> packageGlobs() {
+        return packages;
+    }
+
+}
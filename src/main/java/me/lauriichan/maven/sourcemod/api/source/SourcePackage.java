@@ -1,5 +1,6 @@
 package me.lauriichan.maven.sourcemod.api.source;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -73,6 +74,16 @@ public abstract class SourcePackage implements Iterable<JavaSource<?>> {
         return findSource(path).filter(source -> source.isEnum()).map(src -> (JavaEnumSource) src);
     }
     
+    public abstract List<JavaSource<?>> findAnnotatedWith(String annotation);
+
+    public abstract List<JavaSource<?>> findSubtypesOf(String type);
+
+    public abstract List<JavaSource<?>> findImplementorsOf(String type);
+
+    public Stream<JavaClassSource> findClassesAnnotatedWith(String annotation) {
+        return findAnnotatedWith(annotation).stream().filter(src -> src.isClass()).map(src -> (JavaClassSource) src);
+    }
+    
     public abstract boolean hasDirectSource(String name);
     
     public abstract JavaSource<?> getDirectSource(String name);
@@ -85,6 +96,20 @@ public abstract class SourcePackage implements Iterable<JavaSource<?>> {
 
     public abstract SourcePackage getOrCreatePackage(String path);
 
+    /**
+     * Writes the generated source with the given name right away. A finished source is read-only: it can still be looked up,
+     * but any change made to it afterwards fails the generation.
+     */
+    public abstract void finishSource(String name) throws IllegalStateException;
+
+    public final void finishSource(JavaSource<?> source) throws IllegalStateException {
+        SourcePackage pkg = root().findPackage(source.getPackage());
+        if (pkg == null) {
+            throw new IllegalStateException("Unknown package '" + source.getPackage() + "'");
+        }
+        pkg.finishSource(source.getName());
+    }
+
     protected abstract void createSource(JavaSource<?> source, String name) throws IllegalStateException;
 
     protected final <E extends JavaSource<E>> E createSource(Class<E> type, String name) throws IllegalStateException {
@@ -0,0 +1,98 @@
+package me.lauriichan.maven.sourcemod;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import me.lauriichan.maven.sourcemod.api.ISourceGenerator;
+import me.lauriichan.maven.sourcemod.api.source.SourcePackage;
+
+public class GeneratorGraphTest {
+
+    private static final class NamedGenerator implements ISourceGenerator {
+
+        private final String name;
+        private final List<String> order;
+
+        private NamedGenerator(final String name, final List<String> order) {
+            this.name = name;
+            this.order = order;
+        }
+
+        @Override
+        public void generateSources(final SourcePackage root) {
+            order.add(name);
+        }
+
+    }
+
+    @Test
+    public void allowsTheSameClassTwice() throws Exception {
+        ObjectArrayList<String> order = new ObjectArrayList<>();
+        SourceGeneratorConfiguration[] configurations = {
+            configuration("a.Generator", null, property("target", "first")),
+            configuration("a.Generator", null, property("target", "second"))
+        };
+        GeneratorGraph graph = GeneratorGraph.of(configurations,
+            List.of(new NamedGenerator("first", order), new NamedGenerator("second", order)));
+        assertEquals(2, graph.size());
+        graph.run(null, 1, getClass().getClassLoader(), PipelineTimings.DISABLED);
+        assertEquals(List.of("first", "second"), order);
+    }
+
+    @Test
+    public void dependsOnEveryGeneratorOfAClass() throws Exception {
+        ObjectArrayList<String> order = new ObjectArrayList<>();
+        SourceGeneratorConfiguration[] configurations = {
+            configuration("b.Consumer", null, null, "a.Generator"),
+            configuration("a.Generator", null, null),
+            configuration("a.Generator", null, null)
+        };
+        GeneratorGraph graph = GeneratorGraph.of(configurations,
+            List.of(new NamedGenerator("consumer", order), new NamedGenerator("first", order), new NamedGenerator("second", order)));
+        graph.run(null, 1, getClass().getClassLoader(), PipelineTimings.DISABLED);
+        assertEquals(List.of("first", "second", "consumer"), order);
+    }
+
+    @Test
+    public void rejectsDuplicateExplicitIds() {
+        SourceGeneratorConfiguration[] configurations = {
+            configuration("a.Generator", "shared", null),
+            configuration("b.Generator", "shared", null)
+        };
+        assertThrows(IllegalStateException.class,
+            () -> GeneratorGraph.of(configurations, List.of(new NamedGenerator("a", List.of()), new NamedGenerator("b", List.of()))));
+    }
+
+    @Test
+    public void rejectsExplicitIdsNamedLikeAClass() {
+        SourceGeneratorConfiguration[] configurations = {
+            configuration("a.Generator", null, null),
+            configuration("b.Generator", "a.Generator", null)
+        };
+        assertThrows(IllegalStateException.class,
+            () -> GeneratorGraph.of(configurations, List.of(new NamedGenerator("a", List.of()), new NamedGenerator("b", List.of()))));
+    }
+
+    private static SourceGeneratorConfiguration configuration(final String className, final String id, final Properties properties,
+        final String... dependsOn) {
+        SourceGeneratorConfiguration configuration = new SourceGeneratorConfiguration();
+        configuration.setClassName(className);
+        configuration.setId(id);
+        configuration.setProperties(properties);
+        configuration.setDependsOn(List.of(dependsOn));
+        return configuration;
+    }
+
+    private static Properties property(final String key, final String value) {
+        Properties properties = new Properties();
+        properties.setProperty(key, value);
+        return properties;
+    }
+
+}
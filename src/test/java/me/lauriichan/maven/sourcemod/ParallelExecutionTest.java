@@ -0,0 +1,202 @@
+package me.lauriichan.maven.sourcemod;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.monitor.logging.DefaultLog;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.descriptor.MojoDescriptor;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.jboss.forge.roaster.model.source.JavaClassSource;
+import org.jboss.forge.roaster.model.source.JavaSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import me.lauriichan.maven.sourcemod.api.ISourceGenerator;
+import me.lauriichan.maven.sourcemod.api.ISourceTransformer;
+import me.lauriichan.maven.sourcemod.api.source.SourcePackage;
+
+public class ParallelExecutionTest {
+
+    private static final int MODULES = 24;
+    private static final int THREADS = 8;
+
+    private static final Map<String, ClassLoader> LOADERS = new ConcurrentHashMap<>();
+
+    public static final class RecordingTransformer implements ISourceTransformer {
+
+        @Override
+        public boolean canTransform(final JavaSource<?> source) {
+            return source instanceof JavaClassSource;
+        }
+
+        @Override
+        public void transform(final JavaSource<?> source) {
+            LOADERS.put("transform:" + source.getPackage(), Thread.currentThread().getContextClassLoader());
+            ((JavaClassSource) source).addMethod("public String transformed() { return \"" + source.getPackage() + "\"; }");
+        }
+
+    }
+
+    public static final class RecordingGenerator implements ISourceGenerator {
+
+        @Override
+        public void generateSources(final SourcePackage root) {
+            for (SourcePackage pkg : root.getPackages()) {
+                LOADERS.put("generate:" + pkg.name(), Thread.currentThread().getContextClassLoader());
+                pkg.createClass("Generated").addField("public static final String MODULE = \"" + pkg.name() + "\";");
+            }
+        }
+
+    }
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void runsModulesInParallel() throws Exception {
+        MavenExecutionRequest request = new DefaultMavenExecutionRequest();
+        MavenSession session = session(request);
+        ClassLoader context = Thread.currentThread().getContextClassLoader();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            Future<?>[] futures = new Future<?>[MODULES];
+            for (int i = 0; i < MODULES; i++) {
+                Path module = createModule(i);
+                futures[i] = executor.submit(() -> {
+                    execute(modification(module, session));
+                    execute(generation(module, session));
+                    return null;
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+            request.getExecutionListener().sessionEnded(null);
+        }
+        assertSame(context, Thread.currentThread().getContextClassLoader());
+        for (int i = 0; i < MODULES; i++) {
+            Path module = directory.resolve("module" + i);
+            String modified = Files.readString(module.resolve("target/project-sources/m" + i + "/Source.java"));
+            assertTrue(modified.contains("return \"m" + i + "\";"), modified);
+            String generated = Files.readString(module.resolve("target/generated-sources/m" + i + "/Generated.java"));
+            assertTrue(generated.contains("MODULE = \"m" + i + "\";"), generated);
+            URL classes = module.resolve("target/classes").toUri().toURL();
+            assertExecutionLoader(classes, LOADERS.get("transform:m" + i));
+            assertExecutionLoader(classes, LOADERS.get("generate:m" + i));
+        }
+    }
+
+    private static void assertExecutionLoader(final URL classes, final ClassLoader loader) {
+        // Every execution has to run its user code with its own module's classes, never with another module's
+        assertNotNull(loader);
+        assertTrue(loader instanceof URLClassLoader, String.valueOf(loader));
+        assertEquals(List.of(classes), Arrays.asList(((URLClassLoader) loader).getURLs()));
+    }
+
+    @SuppressWarnings("deprecation")
+    private static MavenSession session(final MavenExecutionRequest request) {
+        // Maven 3.8 deprecates every public session constructor, this is the one its own lifecycle uses
+        return new MavenSession(null, new DefaultRepositorySystemSession(), request, new DefaultMavenExecutionResult());
+    }
+
+    private Path createModule(final int index) throws IOException {
+        Path module = directory.resolve("module" + index);
+        Path source = module.resolve("src/main/java/m" + index + "/Source.java");
+        Files.createDirectories(source.getParent());
+        Files.createDirectories(module.resolve("target/classes"));
+        Files.writeString(source, "package m" + index + ";\n\npublic class Source {\n}\n", StandardCharsets.UTF_8);
+        return module;
+    }
+
+    private static MavenProject project(final Path module) {
+        MavenProject project = new MavenProject();
+        project.setArtifactId(module.getFileName().toString());
+        project.getBuild().setDirectory(module.resolve("target").toString());
+        project.getBuild().setOutputDirectory(module.resolve("target/classes").toString());
+        project.addCompileSourceRoot(module.resolve("src/main/java").toString());
+        return project;
+    }
+
+    private static SourceModificationMojo modification(final Path module, final MavenSession session) throws Exception {
+        SourceModificationMojo mojo = new SourceModificationMojo();
+        SourceTransformerConfiguration transformer = new SourceTransformerConfiguration();
+        transformer.setClassName(RecordingTransformer.class.getName());
+        MavenProject project = project(module);
+        set(mojo, "project", project);
+        set(mojo, "session", session);
+        set(mojo, "mojoExecution", new MojoExecution(new MojoDescriptor(), "modify"));
+        set(mojo, "transformers", new SourceTransformerConfiguration[] {
+            transformer
+        });
+        set(mojo, "classPath", List.of());
+        set(mojo, "sourceDirectories", List.of(module.resolve("src/main/java").toString()));
+        set(mojo, "outputDirectory", module.resolve("target/project-sources").toFile());
+        set(mojo, "parallelism", 2);
+        set(mojo, "includes", new HashSet<>(Set.of("**/*.java")));
+        set(mojo, "encoding", "UTF-8");
+        set(mojo, "timings", false);
+        return mojo;
+    }
+
+    private static SourceGenerationMojo generation(final Path module, final MavenSession session) throws Exception {
+        SourceGenerationMojo mojo = new SourceGenerationMojo();
+        SourceGeneratorConfiguration generator = new SourceGeneratorConfiguration();
+        generator.setClassName(RecordingGenerator.class.getName());
+        MavenProject project = project(module);
+        set(mojo, "project", project);
+        set(mojo, "session", session);
+        set(mojo, "mojoExecution", new MojoExecution(new MojoDescriptor(), "generate"));
+        set(mojo, "generators", new SourceGeneratorConfiguration[] {
+            generator
+        });
+        set(mojo, "classPath", List.of());
+        set(mojo, "sourceDirectories", List.of(module.resolve("src/main/java").toString()));
+        set(mojo, "outputDirectory", module.resolve("target/generated-sources").toFile());
+        set(mojo, "includes", new HashSet<>(Set.of("**/*.java")));
+        set(mojo, "encoding", "UTF-8");
+        set(mojo, "timings", false);
+        return mojo;
+    }
+
+    private static void execute(final AbstractMojo mojo) throws Exception {
+        mojo.setLog(new DefaultLog(new ConsoleLogger(Logger.LEVEL_ERROR, "test")));
+        mojo.execute();
+    }
+
+    private static void set(final Object target, final String name, final Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+}
@@ -0,0 +1,83 @@
+package me.lauriichan.maven.sourcemod;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.jboss.forge.roaster.Roaster;
+import org.jboss.forge.roaster.model.source.AnnotationSource;
+import org.jboss.forge.roaster.model.source.Import;
+import org.jboss.forge.roaster.model.source.JavaSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import me.lauriichan.maven.sourcemod.api.SourceKind;
+
+public class SourceHeaderTest {
+
+    static Stream<Path> corpus() throws IOException, URISyntaxException {
+        Path directory = Path.of(SourceHeaderTest.class.getResource("/header-corpus").toURI());
+        return Files.list(directory).filter(path -> path.toString().endsWith(".java")).sorted();
+    }
+
+    @ParameterizedTest
+    @MethodSource("corpus")
+    public void agreesWithRoaster(final Path file) throws IOException {
+        byte[] content = Files.readAllBytes(file);
+        SourceHeader header = new RawSource(content, StandardCharsets.UTF_8).header();
+        JavaSource<?> source = Roaster.parse(JavaSource.class, new String(content, StandardCharsets.UTF_8));
+
+        assertEquals(source.getPackage() == null ? "" : source.getPackage(), header.packageName());
+        assertTrue(header.hasType());
+        assertEquals(source.getName(), header.typeName());
+        assertEquals(SourceKind.of(source), header.kind());
+
+        List<String> imports = source.getImports().stream().filter(value -> !value.isStatic() && !value.isWildcard())
+            .map(Import::getQualifiedName).toList();
+        assertEquals(imports, header.imports());
+
+        List<? extends AnnotationSource<?>> annotations = source.getAnnotations();
+        List<String> names = header.annotations();
+        assertEquals(annotations.size(), names.size());
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            assertEquals(annotations.get(i).getName(), name.substring(name.lastIndexOf('.') + 1));
+            String resolved = header.resolve(name);
+            // Roaster leaves member types like 'Map.Entry' unresolved, those are covered below
+            if (resolved != null && name.indexOf('.') == -1) {
+                assertEquals(annotations.get(i).getQualifiedName(), resolved);
+            }
+        }
+    }
+
+    @Test
+    public void decodesNamesWithTheConfiguredCharset() {
+        String text = "package caf\u00e9.gr\u00f6\u00dfe;\n\n@Deprecated\npublic class \u00c4pfel {\n}\n";
+        byte[] content = text.getBytes(StandardCharsets.ISO_8859_1);
+        SourceHeader header = new RawSource(content, StandardCharsets.ISO_8859_1).header();
+        JavaSource<?> source = Roaster.parse(JavaSource.class, new String(content, StandardCharsets.ISO_8859_1));
+        assertEquals(source.getPackage(), header.packageName());
+        assertEquals(source.getName(), header.typeName());
+    }
+
+    @Test
+    public void resolvesQualifiedAnnotations() {
+        SourceHeader header = SourceHeader.scan("package a.b;\nimport x.Outer;\n@Outer.Inner @a.b.C @Other.D class E {}",
+            StandardCharsets.UTF_8);
+        assertEquals(List.of("Outer.Inner", "a.b.C", "Other.D"), header.annotations());
+        assertEquals("x.Outer.Inner", header.resolve("Outer.Inner"));
+        assertEquals("x.Outer", header.resolve("Outer"));
+        assertNull(header.resolve("a.b.C"));
+        assertNull(header.resolve("Other.D"));
+    }
+
+}
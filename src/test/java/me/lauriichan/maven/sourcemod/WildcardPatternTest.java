@@ -0,0 +1,78 @@
+package me.lauriichan.maven.sourcemod;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.codehaus.plexus.util.SelectorUtils;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+public class WildcardPatternTest {
+
+    private static final List<String> PATTERNS = List.of("**", "**/*", "*", "*.java", "**/*.java", "**/*.JAVA", "*.Java", "?.java",
+        "a/?.java", "a/??/*.java", "a/**", "a/**/*.java", "a/*", "a/*/c.java", "a/**/c.java", "**/b/**", "**/test/**", "a/", "a/b/",
+        "A/", "b/", "a\\b\\", "a\\*.java", "a/b/c.java", "A/b/c.java", "a/b", "*/b/*", "a*/", "*a*", "**/*Test.java", "*/Test?.java",
+        "", "?", "a/b/**/", "**/", "?/");
+
+    private static final List<String> PATHS = List.of("a.java", "A.java", "b.java", "ab.java", "a.JAVA", "a", "b", "a/", "a/b",
+        "a/b.java", "a/B.java", "a/bb.java", "a/b/c.java", "a/b/C.java", "A/b/c.java", "a/bc/d.java", "a/xy/z.java",
+        "a/b/c/d.java", "b/a/c.java", "src/test/FooTest.java", "src/main/Test1.java", "x/Test1.java", "test/a.java",
+        "a/test/b/c.java", "ab/c.java", "ba/c.java", "a\\b\\c.java", "");
+
+    private static Stream<String> patterns() {
+        return PATTERNS.stream();
+    }
+
+    @ParameterizedTest
+    @MethodSource("patterns")
+    public void matchesLikeSelectorUtils(final String pattern) {
+        for (String path : PATHS) {
+            assertEquals(reference(Set.of(pattern), path), !new SimpleFilter(Set.of(pattern), null, true).isFiltered(path),
+                "'" + pattern + "' against '" + path + "'");
+            assertEquals(reference(Set.of(pattern), path), new SimpleFilter(null, Set.of(pattern), false).isFiltered(path),
+                "'" + pattern + "' excluding '" + path + "'");
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("patterns")
+    public void neverPrunesDirectoriesWithIncludedSources(final String pattern) {
+        SimpleFilter includes = new SimpleFilter(Set.of(pattern), null, true);
+        SimpleFilter excludes = new SimpleFilter(Set.of("**/*Test.java"), Set.of(pattern), true);
+        for (String path : PATHS) {
+            assertReachable(includes, pattern, path);
+            assertReachable(excludes, pattern, path);
+        }
+    }
+
+    private static void assertReachable(final SimpleFilter filter, final String pattern, final String path) {
+        if (path.isEmpty() || filter.isFiltered(path)) {
+            return;
+        }
+        String normalized = path.replace('\\', '/');
+        for (int idx = normalized.indexOf('/'); idx != -1; idx = normalized.indexOf('/', idx + 1)) {
+            String directory = normalized.substring(0, idx + 1);
+            assertTrue(filter.canMatchUnder(directory), "'" + pattern + "' prunes '" + directory + "' but keeps '" + path + "'");
+        }
+        assertTrue(filter.canMatchUnder(""), "'" + pattern + "' prunes the root but keeps '" + path + "'");
+    }
+
+    private static boolean reference(final Set<String> filters, final String path) {
+        // The filter semantics SimpleFilter had before patterns were compiled: case sensitive and '*' crosses directories
+        for (String filter : filters) {
+            filter = filter.replace('\\', '/');
+            if (filter.endsWith("/")) {
+                filter += "**";
+            }
+            if (SelectorUtils.match(filter, path.replace('\\', '/'))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,10 @@
+﻿package corpus.bom;
+
+import java.util.List;
+
+@Deprecated
+public final class Bom {
+
+    List<String> values;
+
+}
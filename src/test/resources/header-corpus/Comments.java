@@ -0,0 +1,18 @@
+// package fake.line;
+/* package fake.block; import fake.Block; */
+package corpus.comments;
+
+/*
+ * @Deprecated class NotThis {}
+ */
+import java.util.List; // import fake.Trailing;
+import java.util.Map;
+
+/** A {@link List} holder, see {@code @Override} and @author nobody */
+@SuppressWarnings /* @Ignored */ ("unchecked")
+// @AlsoIgnored
+public class Comments {
+
+    private List<Map<String, String>> values;
+
+}
@@ -0,0 +1,9 @@
+package corpus.kinds;
+
+@Deprecated
+public enum Enum {
+
+    CLASS,
+    INTERFACE;
+
+}
@@ -0,0 +1,21 @@
+package corpus.nested;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Map;
+
+@Map.Entry
+@java.lang.Deprecated(since = "1.0")
+@Container({@Entry(name = "a)"), @Entry(name = "b}")})
+@Retention(RetentionPolicy.RUNTIME)
+public interface NestedAnnotations<T extends Comparable<T>> {
+
+    @interface Entry {
+        String name();
+    }
+
+    @interface Container {
+        Entry[] value();
+    }
+
+}
@@ -0,0 +1,3 @@
+import java.util.List;
+
+abstract strictfp class NoPackage implements List<String> {}
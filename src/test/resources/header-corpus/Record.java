@@ -0,0 +1,14 @@
+package corpus.kinds;
+
+import static java.util.Objects.requireNonNull;
+import java.io.*;
+import java.io.Serializable;
+
+@SuppressWarnings("record")
+public record Record(String record, int value) implements Serializable {
+
+    public Record {
+        requireNonNull(record);
+    }
+
+}
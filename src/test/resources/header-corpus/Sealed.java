@@ -0,0 +1,17 @@
+package corpus.kinds;
+
+@FunctionalInterface
+public sealed interface Sealed permits Sealed.One, Sealed.Two {
+
+    void run();
+
+    non-sealed interface One extends Sealed {}
+
+    final class Two implements Sealed {
+
+        @Override
+        public void run() {}
+
+    }
+
+}
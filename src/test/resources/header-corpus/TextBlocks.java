@@ -0,0 +1,30 @@
+package corpus.text;
+
+import java.lang.annotation.Documented;
+
+@Documented
+@Description(value = """
+    class Fake { @Hidden }
+    ) """ + "\\\"", note = ")", quote = '"', paren = ')')
+@Description(value = """
+    escaped \""" still inside
+    """)
+final class TextBlocks {
+
+    static final String TEXT = """
+        public interface Other {}
+        """;
+
+}
+
+@interface Description {
+
+    String value();
+
+    String note() default "";
+
+    char quote() default ' ';
+
+    char paren() default ' ';
+
+}
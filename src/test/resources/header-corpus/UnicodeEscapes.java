@@ -0,0 +1,12 @@
+package corpus.unicode;
+
+import java.util.concurrent.TimeUnit;
+
+// Escapes like \u0041 are translated before lexing, \\u0041 is not an escape
+@SuppressWarnings("caf\u00e9 \\u0022")
+@\u0044eprecated
+public class Caf\u00e9Größe {
+
+    static final TimeUnit UNIT = TimeUnit.SECONDS;
+
+}